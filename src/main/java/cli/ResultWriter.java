@@ -0,0 +1,108 @@
+package cli;
+
+import com.google.gson.JsonObject;
+import core.entities.Result;
+
+import java.io.IOException;
+import java.io.Writer;
+
+//Writes one line per completed query
+public abstract class ResultWriter {
+
+    protected final Writer out;
+
+    protected ResultWriter(Writer out) {
+        this.out = out;
+    }
+
+    public static ResultWriter create(String format, Writer out) {
+        switch (format.toLowerCase()) {
+            case "jsonl":
+                return new JsonLinesWriter(out);
+            case "csv":
+                return new CsvWriter(out);
+            default:
+                throw new IllegalArgumentException("Unknown output format: " + format);
+        }
+    }
+
+    public void writeHeader() throws IOException {}
+
+    public abstract void write(Result result) throws IOException;
+
+    //Line already made by a writer of the same format, e.g. by a worker of a sharded run
+    public void writeLine(String line) throws IOException {
+        out.write(line);
+        out.write("\n");
+        out.flush();
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private static class JsonLinesWriter extends ResultWriter {
+
+        private JsonLinesWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(Result result) throws IOException {
+            JsonObject json = new JsonObject();
+            json.addProperty("query", result.getQuery());
+            json.addProperty("status", result.getStatusString());
+            json.addProperty("activeItemsTotal", result.getActiveItemsTotal());
+            json.addProperty("activeItemsFound", result.getActiveItemsFound());
+            json.addProperty("completeItemsTotal", result.getCompleteItemsTotal());
+            json.addProperty("completeItemsFound", result.getCompleteItemsFound());
+            json.addProperty("soldItems", result.getSoldItems());
+            json.addProperty("avgPriceListed", result.getAvgPriceListed());
+            json.addProperty("avgPriceSold", result.getAvgPriceSold());
+            json.addProperty("soldRatio", result.getSoldRatio());
+            json.addProperty("curValue", result.getCurValue());
+            json.addProperty("searchUrl", result.getSearchUrl());
+            out.write(json.toString());
+            out.write("\n");
+            out.flush();
+        }
+    }
+
+    private static class CsvWriter extends ResultWriter {
+
+        private CsvWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void writeHeader() throws IOException {
+            out.write("query,status,activeItemsTotal,activeItemsFound,completeItemsTotal,completeItemsFound," +
+                    "soldItems,avgPriceListed,avgPriceSold,soldRatio,curValue,searchUrl\n");
+            out.flush();
+        }
+
+        @Override
+        public void write(Result result) throws IOException {
+            out.write(String.join(",",
+                    quote(result.getQuery()),
+                    quote(result.getStatusString()),
+                    String.valueOf(result.getActiveItemsTotal()),
+                    String.valueOf(result.getActiveItemsFound()),
+                    String.valueOf(result.getCompleteItemsTotal()),
+                    String.valueOf(result.getCompleteItemsFound()),
+                    String.valueOf(result.getSoldItems()),
+                    String.valueOf(result.getAvgPriceListed()),
+                    String.valueOf(result.getAvgPriceSold()),
+                    String.valueOf(result.getSoldRatio()),
+                    String.valueOf(result.getCurValue()),
+                    quote(result.getSearchUrl())));
+            out.write("\n");
+            out.flush();
+        }
+
+        private static String quote(String value) {
+            if (value == null) return "";
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+    }
+}
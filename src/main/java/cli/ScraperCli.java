@@ -0,0 +1,288 @@
+package cli;
+
+import core.DeltaStore;
+import core.DiskCache;
+import core.Endpoints;
+import core.ItemsFileSink;
+import core.ItemsSeeker;
+import core.Logger;
+import core.entities.Result;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+//Headless batch mode: reads queries from a file or stdin and streams results of every completed query to stdout or a file
+public class ScraperCli implements Logger, ItemsSeeker.ResultsLoadingListener {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: java -cp <classpath> cli.ScraperCli [options]",
+            "  -i, --input <file>        queries, one per line (default: stdin)",
+            "  -o, --output <file>       results file (default: stdout)",
+            "  -f, --format <jsonl|csv>  results format (default: jsonl)",
+            "  -c, --condition <all|new|used>",
+            "      --category <id>       eBay category id",
+            "  -l, --items-limit <n>     max items per query and items type",
+            "      --price-bands <n>     load queries with more than n items by price bands in parallel,",
+            "                            needed for items limit above 10000",
+            "  -t, --threads <n>         max requests in flight",
+            "  -s, --scheduling <fifo|shortest_first|round_robin>",
+            "                            order of pages of different queries (default: fifo),",
+            "                            shortest_first writes small queries first",
+            "  -e, --engine <callbacks|virtual_threads>",
+            "                            virtual threads engine needs Java 21 and the build with the jdk21 profile",
+            "  -k, --app-id <id>         eBay App ID (default: first line of key.txt)",
+            "      --cache <dir>         directory of the disk cache of responses",
+            "      --items <file>        write every found item to the file as JSON lines",
+            "      --delta <dir>         directory of results of previous runs: only items listed since the previous",
+            "                            run are loaded and merged with the stored ones, --items gets only new items",
+            "      --api-url <url>       send API calls to this server instead of eBay, e.g. a local stand-in",
+            "      --coordinator <port>  sharded run: lease queries to workers and write their results, nothing is loaded here",
+            "      --worker <host:port>  sharded run: load queries leased by the coordinator, -c, -l, --category,",
+            "                            --price-bands and -f are taken from the coordinator",
+            "      --batch-size <n>      queries per lease (default: 100)",
+            "      --lease-timeout <s>   lease of a silent worker is given to others after it (default: 60)",
+            "  -q, --quiet               don't log progress to stderr",
+            "  -h, --help");
+
+    private static final String[] SHARED_SETTINGS = {"condition", "items-limit", "category", "price-bands"};
+
+    private ResultWriter writer;
+    private boolean isQuiet;
+    private long completed; //Guarded by this, results of different queries are completed on different threads
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    public static void main(String[] args) {
+        try {
+            System.exit(new ScraperCli().run(args, System.out));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+    }
+
+    private int run(String[] args, PrintStream stdout) {
+        Map<String, String> options = parseOptions(args);
+        if (options.containsKey("help")) {
+            System.err.println(USAGE);
+            return 0;
+        }
+        isQuiet = options.containsKey("quiet");
+        try {
+            if (options.containsKey("coordinator")) return runCoordinator(options, stdout);
+            ShardWorker worker = null;
+            if (options.containsKey("worker")) {
+                worker = new ShardWorker(options.get("worker"), this);
+                //Settings of the run are given by the coordinator
+                for (String name : SHARED_SETTINGS) {
+                    options.remove(name);
+                    if (worker.getSetting(name) != null) options.put(name, worker.getSetting(name));
+                }
+            }
+            String appName = options.containsKey("app-id")
+                    ? options.get("app-id")
+                    : Files.readAllLines(Paths.get("key.txt")).get(0);
+
+            BufferedReader input = null;
+            Iterator<String> queries = worker;
+            if (worker == null) {
+                input = openInput(options);
+                queries = input.lines()
+                        .map(String::trim)
+                        .filter(q -> !q.isEmpty())
+                        .iterator();
+                writer = ResultWriter.create(options.getOrDefault("format", "jsonl"), openOutput(options, stdout));
+                writer.writeHeader();
+            }
+
+            if (options.containsKey("api-url")) Endpoints.useServer(options.get("api-url"));
+            ItemsSeeker itemsSeeker = ItemsSeeker.create(parseEngine(options.get("engine")), queries, appName,
+                    parseCondition(options.get("condition")), worker != null ? worker : this);
+            itemsSeeker.setLogger(this);
+            itemsSeeker.setRetainResults(false);
+            itemsSeeker.setItemsStorage(Result.ItemsStorage.NONE); //Only statistics are written to the output
+            ItemsFileSink itemsSink = null;
+            if (options.containsKey("items")) {
+                itemsSink = new ItemsFileSink(Paths.get(options.get("items")));
+                itemsSink.setLogger(this);
+                itemsSeeker.setResultSink(itemsSink);
+            }
+            if (options.containsKey("category")) itemsSeeker.setCategoryId(options.get("category"));
+            if (options.containsKey("items-limit")) itemsSeeker.setItemsLimit(parseInt(options.get("items-limit"), "items limit"));
+            if (options.containsKey("price-bands")) itemsSeeker.setPartitionThreshold(parseInt(options.get("price-bands"), "price bands threshold"));
+            itemsSeeker.setScheduling(parseScheduling(options.get("scheduling")));
+            if (options.containsKey("threads")) itemsSeeker.setMaxThreads(parseInt(options.get("threads"), "threads count"));
+            if (options.containsKey("delta")) itemsSeeker.setDeltaStore(new DeltaStore(Paths.get(options.get("delta"))));
+            if (options.containsKey("cache")) itemsSeeker.setDiskCache(new DiskCache(Paths.get(options.get("cache")), 512L * 1024 * 1024));
+
+            log("--- Items searching started ---");
+            itemsSeeker.start();
+            if (worker != null) {
+                worker.await();
+            } else {
+                finished.await();
+                writer.close();
+                input.close();
+            }
+            if (itemsSink != null) itemsSink.close();
+            if (worker == null) log("--- Items searching completed: " + completed + " queries ---");
+            return 0;
+        } catch (IOException e) {
+            System.err.println("I/O error: " + e.getMessage());
+            return 1;
+        } catch (UnsupportedOperationException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            return 1;
+        }
+    }
+
+    //Coordinator doesn't load anything itself: it leases the queries to workers and writes their results
+    private int runCoordinator(Map<String, String> options, PrintStream stdout) throws IOException, InterruptedException {
+        List<String> queries;
+        try (BufferedReader input = openInput(options)) {
+            queries = input.lines()
+                    .map(String::trim)
+                    .filter(q -> !q.isEmpty())
+                    .distinct()
+                    .collect(Collectors.toList());
+        }
+        parseCondition(options.get("condition"));
+        String format = options.getOrDefault("format", "jsonl");
+        writer = ResultWriter.create(format, openOutput(options, stdout));
+        writer.writeHeader();
+        StringBuilder settings = new StringBuilder("format=" + format);
+        for (String name : SHARED_SETTINGS) {
+            if (options.containsKey(name)) settings.append(' ').append(name).append('=').append(options.get(name));
+        }
+        ShardCoordinator coordinator = new ShardCoordinator(parseInt(options.get("coordinator"), "port"), queries,
+                parseInt(options.getOrDefault("batch-size", "100"), "batch size"), parseLeaseTimeout(options),
+                settings.toString(), writer, this);
+        log("--- Sharded run started: " + queries.size() + " queries ---");
+        long written = coordinator.run();
+        writer.close();
+        log("--- Sharded run completed: " + written + " queries ---");
+        return 0;
+    }
+
+    private static BufferedReader openInput(Map<String, String> options) throws IOException {
+        return options.containsKey("input")
+                ? Files.newBufferedReader(Paths.get(options.get("input")), StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+    }
+
+    private static Writer openOutput(Map<String, String> options, PrintStream stdout) throws IOException {
+        return options.containsKey("output")
+                ? Files.newBufferedWriter(Paths.get(options.get("output")), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8));
+    }
+
+    private static long parseLeaseTimeout(Map<String, String> options) {
+        return parseInt(options.getOrDefault("lease-timeout", "60"), "lease timeout") * 1000L;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String name;
+            switch (args[i]) {
+                case "-i": case "--input": name = "input"; break;
+                case "-o": case "--output": name = "output"; break;
+                case "-f": case "--format": name = "format"; break;
+                case "-c": case "--condition": name = "condition"; break;
+                case "--category": name = "category"; break;
+                case "-l": case "--items-limit": name = "items-limit"; break;
+                case "--price-bands": name = "price-bands"; break;
+                case "-t": case "--threads": name = "threads"; break;
+                case "-s": case "--scheduling": name = "scheduling"; break;
+                case "-e": case "--engine": name = "engine"; break;
+                case "-k": case "--app-id": name = "app-id"; break;
+                case "--cache": name = "cache"; break;
+                case "--items": name = "items"; break;
+                case "--delta": name = "delta"; break;
+                case "--api-url": name = "api-url"; break;
+                case "--coordinator": name = "coordinator"; break;
+                case "--worker": name = "worker"; break;
+                case "--batch-size": name = "batch-size"; break;
+                case "--lease-timeout": name = "lease-timeout"; break;
+                case "-q": case "--quiet": options.put("quiet", ""); continue;
+                case "-h": case "--help": options.put("help", ""); continue;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+            if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value of " + args[i]);
+            options.put(name, args[++i]);
+        }
+        return options;
+    }
+
+    private static ItemsSeeker.Condition parseCondition(String condition) {
+        if (condition == null) return ItemsSeeker.Condition.ALL;
+        try {
+            return ItemsSeeker.Condition.valueOf(condition.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown condition: " + condition);
+        }
+    }
+
+    private static ItemsSeeker.Engine parseEngine(String engine) {
+        if (engine == null) return ItemsSeeker.Engine.CALLBACKS;
+        try {
+            return ItemsSeeker.Engine.valueOf(engine.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+    }
+
+    private static ItemsSeeker.Scheduling parseScheduling(String scheduling) {
+        if (scheduling == null) return ItemsSeeker.Scheduling.FIFO;
+        try {
+            return ItemsSeeker.Scheduling.valueOf(scheduling.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown scheduling: " + scheduling);
+        }
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Incorrect " + name + ": " + value);
+        }
+    }
+
+    @Override
+    public void onResultReceived(Result result) {}
+
+    @Override
+    public synchronized void onResultCompleted(Result result) {
+        try {
+            writer.write(result);
+            completed++;
+        } catch (IOException e) {
+            System.err.println("Unable to write result of query " + result.getQuery() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onAllResultsReceived() {
+        finished.countDown();
+    }
+
+    @Override
+    public void log(String message) {
+        if (isQuiet) return;
+        String curTime = new SimpleDateFormat("HH:mm:ss").format(new Date());
+        System.err.println(curTime + ": " + message);
+    }
+}
@@ -0,0 +1,203 @@
+package cli;
+
+import core.Logger;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//Owns the query list of a sharded run and leases batches of queries to workers (ScraperCli --worker), which may run
+//on other machines with their own App IDs. Line protocol over TCP:
+//  coordinator -> worker: RUN <name=value>... once after connect; BATCH <id> <count> followed by <index>\t<query> lines;
+//                         WAIT if all batches are leased now; NONE when the run is finished
+//  worker -> coordinator: LEASE; PING; RESULT <id> <index> <result line>; BYE
+//Lease is renewed by every ping and result of the worker. When it expires or the worker disconnects, queries of the batch
+//without results are leased again. Result of every query is written once, the first one received wins
+class ShardCoordinator {
+
+    private final ServerSocket serverSocket;
+    private final ResultWriter writer;
+    private final String settings;
+    private final long leaseTimeout;
+    private final Logger logger;
+
+    private final Deque<Batch> available = new ArrayDeque<>();
+    private final List<Batch> leased = new ArrayList<>();
+    private final Map<Integer, Batch> batches = new HashMap<>();
+    private int batchesLeft;
+    private long written;
+
+    ShardCoordinator(int port, List<String> queries, int batchSize, long leaseTimeout, String settings,
+                     ResultWriter writer, Logger logger) throws IOException {
+        this.serverSocket = new ServerSocket(port);
+        this.writer = writer;
+        this.settings = settings;
+        this.leaseTimeout = leaseTimeout;
+        this.logger = logger;
+        for (int from = 0; from < queries.size(); from += batchSize) {
+            Batch batch = new Batch(batches.size(), queries.subList(from, Math.min(from + batchSize, queries.size())));
+            batches.put(batch.id, batch);
+            available.add(batch);
+        }
+        batchesLeft = batches.size();
+    }
+
+    //Blocks until results of all queries are written. Returns number of written results
+    long run() throws InterruptedException {
+        logger.log("Coordinator is listening on port " + serverSocket.getLocalPort() + ": " + batches.size() + " batches");
+        Thread acceptor = new Thread(this::accept, "Coordinator acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Coordinator leases");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::expireLeases, 1, 1, TimeUnit.SECONDS);
+        synchronized (this) {
+            while (batchesLeft > 0) wait();
+        }
+        scheduler.shutdownNow();
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return written;
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(() -> handle(socket), "Worker " + socket.getRemoteSocketAddress());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (SocketException e) {
+                return; //Closed at the end of the run
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        String worker = socket.getRemoteSocketAddress().toString();
+        logger.log("Worker " + worker + " connected");
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            out.write("RUN " + settings + " lease-timeout=" + leaseTimeout + "\n");
+            out.flush();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("LEASE")) {
+                    out.write(lease(worker));
+                    out.flush();
+                } else if (line.equals("PING")) {
+                    renew(worker);
+                } else if (line.startsWith("RESULT ")) {
+                    String[] parts = line.split(" ", 4);
+                    onResult(worker, Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), parts[3]);
+                } else if (line.equals("BYE")) {
+                    break;
+                } else {
+                    logger.log("Worker " + worker + " - unknown command: " + line);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log("Worker " + worker + " - connection error: " + e.getMessage());
+        }
+        release(worker);
+        logger.log("Worker " + worker + " disconnected");
+    }
+
+    //Returns the response to LEASE
+    private synchronized String lease(String worker) {
+        if (batchesLeft == 0) return "NONE\n";
+        Batch batch = available.poll();
+        if (batch == null) return "WAIT\n";
+        batch.worker = worker;
+        batch.expiresAt = System.currentTimeMillis() + leaseTimeout;
+        leased.add(batch);
+        StringBuilder response = new StringBuilder();
+        response.append("BATCH ").append(batch.id).append(' ').append(batch.pending).append('\n');
+        for (int i = 0; i < batch.queries.size(); i++) {
+            if (!batch.done.get(i)) response.append(i).append('\t').append(batch.queries.get(i)).append('\n');
+        }
+        return response.toString();
+    }
+
+    private synchronized void renew(String worker) {
+        long expiresAt = System.currentTimeMillis() + leaseTimeout;
+        for (Batch batch : leased) {
+            if (batch.worker.equals(worker)) batch.expiresAt = expiresAt;
+        }
+    }
+
+    //Results of expired leases are still accepted if the query has no result yet
+    private synchronized void onResult(String worker, int batchId, int index, String line) throws IOException {
+        Batch batch = batches.get(batchId);
+        if (batch == null || batch.done.get(index)) return;
+        writer.writeLine(line);
+        written++;
+        batch.done.set(index);
+        batch.pending--;
+        if (worker.equals(batch.worker)) renew(worker);
+        if (batch.pending == 0) {
+            leased.remove(batch);
+            available.remove(batch);
+            if (--batchesLeft == 0) notifyAll();
+        }
+    }
+
+    //Disconnected worker won't send results of its batches
+    private synchronized void release(String worker) {
+        for (Iterator<Batch> iterator = leased.iterator(); iterator.hasNext(); ) {
+            Batch batch = iterator.next();
+            if (!batch.worker.equals(worker)) continue;
+            iterator.remove();
+            requeue(batch);
+        }
+    }
+
+    private synchronized void expireLeases() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Batch> iterator = leased.iterator(); iterator.hasNext(); ) {
+            Batch batch = iterator.next();
+            if (batch.expiresAt > now) continue;
+            iterator.remove();
+            logger.log("Lease of batch " + batch.id + " by worker " + batch.worker + " is expired");
+            requeue(batch);
+        }
+    }
+
+    //Batch taken from another worker goes first, its queries are waited for longer than others
+    private void requeue(Batch batch) {
+        batch.worker = null;
+        logger.log("Batch " + batch.id + ": " + batch.pending + " queries without results are queued again");
+        available.addFirst(batch);
+    }
+
+    private static class Batch {
+        private final int id;
+        private final List<String> queries;
+        private final BitSet done;
+        private int pending;
+        private String worker;
+        private long expiresAt;
+
+        Batch(int id, List<String> queries) {
+            this.id = id;
+            this.queries = queries;
+            this.done = new BitSet(queries.size());
+            this.pending = queries.size();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package cli;
+
+import core.ItemsSeeker;
+import core.Logger;
+import core.entities.Result;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//Worker of a sharded run (see ShardCoordinator). It is the query source of the seeker: a new batch is leased
+//when the seeker needs more queries, so the worker holds only one batch ahead. While all batches are leased
+//to others, the seeker gets no query and asks again later. Result of every query is sent to the coordinator
+//as soon as the query is completed
+class ShardWorker implements Iterator<String>, ItemsSeeker.ResultsLoadingListener {
+
+    private static final int CONNECT_TIMEOUT = 60000; //Read timeout until the greeting gives the lease timeout
+
+    private final Socket socket;
+    private final BufferedReader in;
+    private final Writer out;
+    private final Map<String, String> settings = new HashMap<>();
+    private final Logger logger;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final ScheduledExecutorService heartbeat;
+    private final Object leaseLock = new Object(); //Guards reading of the coordinator replies, writes are guarded by this
+
+    private final Deque<Entry> batch = new ArrayDeque<>(); //Read by the dispatching thread only
+    private final Map<String, List<Entry>> running = new HashMap<>(); //Guarded by this
+    private final StringWriter line = new StringWriter(); //Guarded by this
+    private final ResultWriter lineWriter;
+    private boolean isDrained;
+    private long completed;
+
+    ShardWorker(String address, Logger logger) throws IOException {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0) throw new IllegalArgumentException("Coordinator address must be host:port");
+        this.socket = new Socket(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1)));
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        this.logger = logger;
+        socket.setSoTimeout(CONNECT_TIMEOUT);
+        String run = in.readLine();
+        if (run == null || !run.startsWith("RUN")) throw new IOException("Unexpected greeting of the coordinator: " + run);
+        for (String setting : run.substring(3).trim().split(" ")) {
+            int eq = setting.indexOf('=');
+            if (eq > 0) settings.put(setting.substring(0, eq), setting.substring(eq + 1));
+        }
+        lineWriter = ResultWriter.create(settings.getOrDefault("format", "jsonl"), line);
+        long leaseTimeout = Long.parseLong(settings.getOrDefault("lease-timeout", "60000"));
+        //Coordinator replies to a lease at once, a silent one is treated as a lost connection
+        socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, leaseTimeout));
+        //Lease is kept while the worker is alive, even if its queries are loaded for a long time
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Worker heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long pingMillis = leaseTimeout / 3;
+        heartbeat.scheduleWithFixedDelay(() -> send("PING\n"), pingMillis, pingMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //Settings of the run given by the coordinator: condition, items-limit, category, format
+    String getSetting(String name) {
+        return settings.get(name);
+    }
+
+    void await() throws InterruptedException {
+        finished.await();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (batch.isEmpty() && !isDrained) lease();
+        return !batch.isEmpty() || !isDrained;
+    }
+
+    //Returns null if the coordinator has no batch for now
+    @Override
+    public String next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Entry entry = batch.poll();
+        if (entry == null) return null;
+        //Same query may come in several batches. Seeker loads it once if it's still running, the result is sent for all
+        synchronized (this) {
+            running.computeIfAbsent(entry.query, k -> new ArrayList<>()).add(entry);
+        }
+        return entry.query;
+    }
+
+    //Reply is awaited under its own lock, so results and pings are sent while the coordinator answers
+    private void lease() {
+        synchronized (leaseLock) {
+            readLease();
+        }
+    }
+
+    private void readLease() {
+        try {
+            write("LEASE\n");
+            String response = in.readLine();
+            if (response == null || response.equals("NONE")) {
+                isDrained = true;
+            } else if (response.equals("WAIT")) {
+                return; //Leases of other workers may expire, so the run isn't over yet
+            } else if (response.startsWith("BATCH ")) {
+                String[] parts = response.split(" ");
+                int batchId = Integer.parseInt(parts[1]);
+                int count = Integer.parseInt(parts[2]);
+                for (int i = 0; i < count; i++) {
+                    String query = in.readLine();
+                    if (query == null) throw new IOException("Batch " + batchId + " is cut off");
+                    int tab = query.indexOf('\t');
+                    batch.add(new Entry(batchId, Integer.parseInt(query.substring(0, tab)), query.substring(tab + 1)));
+                }
+                logger.log("Batch " + batchId + " leased: " + count + " queries");
+            } else {
+                throw new IOException("Unexpected response of the coordinator: " + response);
+            }
+        } catch (IOException e) {
+            logger.log("Connection to the coordinator is lost: " + e.getMessage());
+            isDrained = true;
+        }
+    }
+
+    @Override
+    public void onResultReceived(Result result) {}
+
+    @Override
+    public synchronized void onResultCompleted(Result result) {
+        List<Entry> entries = running.remove(result.getQuery());
+        if (entries == null) return;
+        try {
+            lineWriter.write(result);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        String resultLine = line.toString().trim();
+        line.getBuffer().setLength(0);
+        for (Entry entry : entries) send("RESULT " + entry.batchId + " " + entry.index + " " + resultLine + "\n");
+        completed++;
+    }
+
+    @Override
+    public void onAllResultsReceived() {
+        heartbeat.shutdownNow();
+        send("BYE\n");
+        try {
+            socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        logger.log("Worker finished: " + completed + " queries");
+        finished.countDown();
+    }
+
+    private void send(String message) {
+        try {
+            write(message);
+        } catch (IOException e) {
+            logger.log("Unable to send to the coordinator: " + e.getMessage());
+        }
+    }
+
+    private synchronized void write(String message) throws IOException {
+        out.write(message);
+        out.flush();
+    }
+
+    private static class Entry {
+        private final int batchId;
+        private final int index;
+        private final String query;
+
+        Entry(int batchId, int index, String query) {
+            this.batchId = batchId;
+            this.index = index;
+            this.query = query;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package core;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//Counters of one API call type. Requests carry their metrics as a tag (Request.Builder.tag(CallMetrics.class, metrics)),
+//so latency and bytes are recorded by the event listener of the shared HttpTransport, while components record
+//parse time, errors and retries
+public class CallMetrics implements CallMetricsMXBean {
+
+    private final String name;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram(); //millis, until response headers are received
+    private final LatencyHistogram parseTime = new LatencyHistogram(); //micros
+
+    CallMetrics(String name) {
+        this.name = name;
+    }
+
+    void onRequest() {
+        requests.increment();
+    }
+
+    //Network failure, unreadable response or error returned by the API
+    void onError() {
+        errors.increment();
+    }
+
+    void onRetry() {
+        retries.increment();
+    }
+
+    void onBytesReceived(long bytes) {
+        bytesReceived.add(bytes);
+    }
+
+    void recordLatency(long millis) {
+        latency.record(millis);
+    }
+
+    void recordParseTime(long nanos) {
+        parseTime.record(nanos / 1000);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public long getLatencyP50Millis() {
+        return latency.getPercentile(50);
+    }
+
+    @Override
+    public long getLatencyP99Millis() {
+        return latency.getPercentile(99);
+    }
+
+    @Override
+    public long getParseTimeP50Micros() {
+        return parseTime.getPercentile(50);
+    }
+
+    @Override
+    public long getParseTimeP99Micros() {
+        return parseTime.getPercentile(99);
+    }
+
+    @Override
+    public String toString() {
+        return getRequests() + " requests, " + getErrors() + " errors, " + getRetries() + " retries, "
+                + getBytesReceived() / 1024 + " KB received, latency p50 " + getLatencyP50Millis() + " ms, p99 "
+                + getLatencyP99Millis() + " ms, parsing p50 " + getParseTimeP50Micros() + " us, p99 " + getParseTimeP99Micros() + " us";
+    }
+}
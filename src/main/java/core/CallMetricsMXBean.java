@@ -0,0 +1,21 @@
+package core;
+
+//Read-only JMX view of one API call type, registered as core:type=Metrics,component=<component>,call=<call type>
+public interface CallMetricsMXBean {
+
+    long getRequests();
+
+    long getErrors();
+
+    long getRetries();
+
+    long getBytesReceived();
+
+    long getLatencyP50Millis();
+
+    long getLatencyP99Millis();
+
+    long getParseTimeP50Micros();
+
+    long getParseTimeP99Micros();
+}
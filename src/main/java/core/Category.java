@@ -11,61 +11,78 @@ import java.util.concurrent.TimeUnit;
 
 public class Category {
 
-    private static OkHttpClient client;
+    private static final OkHttpClient client = HttpTransport.shared().newClient().callTimeout(5, TimeUnit.SECONDS).build();
     private static Logger logger;
+    private static final Gson gson = new Gson();
     private static Callback callback;
     private static HttpUrl preparedUrl;
     private static String APP_NAME;
-    private final static String BASE_URL = "https://open.api.ebay.com/Shopping";
+    private static final CallMetrics metrics = Metrics.of("Category").call("GetCategoryInfo");
 
     public static Category findById(String caregoryId) {
         prepareUrl();
-        client = new OkHttpClient.Builder().callTimeout(5, TimeUnit.SECONDS).build();
 
         HttpUrl urlWithCatId = preparedUrl.newBuilder()
                 .addQueryParameter("CategoryID", caregoryId)
                 .build();
         Request request = new Request.Builder()
                 .url(urlWithCatId)
+                .tag(CallMetrics.class, metrics)
                 .build();
 
         try {
-            JsonObject root = new Gson().fromJson(client.newCall(request).execute().body().string(), JsonObject.class);
-            //isSuccess
-            boolean isSuccess = root.get("Ack").getAsString().equals("Success");
-            if (!isSuccess) {
-                String errorMessage = root.get("Errors").getAsJsonArray()
-                        .get(0).getAsJsonObject()
-                        .get("LongMessage").getAsString();
-                log("Unable to read category info: " + errorMessage);
+            if (!RateLimiter.forAppId(APP_NAME).acquire()) {
+                log("Unable to read category info: daily API calls budget is exhausted");
                 return null;
             }
-            JsonArray categories = root.get("CategoryArray").getAsJsonObject().get("Category").getAsJsonArray();
-            String categoryName = categories.get(0).getAsJsonObject().get("CategoryName").getAsString();
-            String parentId = categories.get(0).getAsJsonObject().get("CategoryParentID").getAsString();
-            Category category = new Category(caregoryId, categoryName, parentId);
-            for (int i = 1; i < categories.size(); i++) {
-                String childName = categories.get(i).getAsJsonObject().get("CategoryName").getAsString();
-                String childId = categories.get(i).getAsJsonObject().get("CategoryID").getAsString();
-                category.addChild(childName, childId);
-            }
+            String json = client.newCall(request).execute().body().string();
+            long parseStart = System.nanoTime();
+            Category category = parse(caregoryId, json);
+            metrics.recordParseTime(System.nanoTime() - parseStart);
+            if (category == null) metrics.onError();
             return category;
-        } catch (IOException | NullPointerException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (IOException | NullPointerException e) { //Network failures are counted by the transport
             log("Unable to read category info: empty response body");
             e.printStackTrace();
             return null;
         } catch (Exception e) {
+            metrics.onError();
             log("Unable to read category info");
             e.printStackTrace();
             return null;
-        } finally {
-            client.connectionPool().evictAll();
         }
     }
 
+    //Parsing GetCategoryInfo response: the category itself goes first, then its children. Returns null if the call failed
+    static Category parse(String caregoryId, String json) {
+        JsonObject root = gson.fromJson(json, JsonObject.class);
+        //isSuccess
+        boolean isSuccess = root.get("Ack").getAsString().equals("Success");
+        if (!isSuccess) {
+            String errorMessage = root.get("Errors").getAsJsonArray()
+                    .get(0).getAsJsonObject()
+                    .get("LongMessage").getAsString();
+            log("Unable to read category info: " + errorMessage);
+            return null;
+        }
+        JsonArray categories = root.get("CategoryArray").getAsJsonObject().get("Category").getAsJsonArray();
+        String categoryName = categories.get(0).getAsJsonObject().get("CategoryName").getAsString();
+        String parentId = categories.get(0).getAsJsonObject().get("CategoryParentID").getAsString();
+        Category category = new Category(caregoryId, categoryName, parentId);
+        for (int i = 1; i < categories.size(); i++) {
+            String childName = categories.get(i).getAsJsonObject().get("CategoryName").getAsString();
+            String childId = categories.get(i).getAsJsonObject().get("CategoryID").getAsString();
+            category.addChild(childName, childId);
+        }
+        return category;
+    }
+
     //Preparing URL with get parameters
     private static void prepareUrl() {
-        HttpUrl httpUrl = HttpUrl.parse(BASE_URL);
+        HttpUrl httpUrl = HttpUrl.parse(Endpoints.getShoppingUrl());
         if (httpUrl == null) {
             log("Unable to detect base url");
             return;
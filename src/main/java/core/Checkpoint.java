@@ -0,0 +1,202 @@
+package core;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import core.entities.Item;
+import core.entities.Result;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+//Append-only checkpoint of a scraping run. The first line describes the run, every next line is a loaded page.
+//Records are serialized and written by a background thread and flushed to disk periodically
+public class Checkpoint {
+
+    private static final long FLUSH_PERIOD = 5; //seconds
+
+    private final Path file;
+    private final boolean isResumed;
+    private final Gson gson = new Gson();
+    private BufferedWriter writer;
+    private ScheduledExecutorService executor;
+
+    //Starting new checkpoint, previous content of the file is dropped
+    public static Checkpoint create(Path file) throws IOException {
+        Files.deleteIfExists(file);
+        return new Checkpoint(file, false);
+    }
+
+    //Opening existing checkpoint to resume the run
+    public static Checkpoint open(Path file) throws IOException {
+        if (!Files.exists(file)) throw new IOException("Checkpoint file not found: " + file);
+        return new Checkpoint(file, true);
+    }
+
+    private Checkpoint(Path file, boolean isResumed) {
+        this.file = file;
+        this.isResumed = isResumed;
+    }
+
+    RunRecord readRun() throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null) throw new IOException("Checkpoint is empty: " + file);
+            return gson.fromJson(line, RunRecord.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Checkpoint is broken: " + file, e);
+        }
+    }
+
+    //Reading saved pages in the order they were loaded. Reading stops at the first broken (not completely written) line
+    void replay(Consumer<PageRecord> consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                PageRecord record;
+                try {
+                    record = gson.fromJson(line, PageRecord.class);
+                } catch (JsonParseException e) {
+                    break;
+                }
+                if (record == null) break;
+                consumer.accept(record);
+            }
+        }
+    }
+
+    void writeRun(RunRecord run) {
+        write(run);
+    }
+
+    void writePage(PageRequest page, Result pageResult) {
+        write(new PageRecord(page, pageResult));
+    }
+
+    private synchronized void write(Object record) {
+        if (executor == null) openWriter();
+        executor.execute(() -> {
+            try {
+                writer.write(gson.toJson(record));
+                writer.newLine();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    private void openWriter() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Checkpoint writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.execute(() -> {
+            try {
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        executor.scheduleWithFixedDelay(this::flush, FLUSH_PERIOD, FLUSH_PERIOD, TimeUnit.SECONDS);
+    }
+
+    private void flush() {
+        try {
+            if (writer != null) writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    //Writing all pending records to disk
+    public synchronized void close() {
+        if (executor == null) return;
+        executor.execute(() -> {
+            try {
+                if (writer != null) writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    boolean isResumed() {
+        return isResumed;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    static class RunRecord {
+        List<String> queries;
+        ItemsSeeker.Condition condition;
+        String categoryId;
+        int itemsLimit;
+        int partitionThreshold;
+
+        RunRecord(List<String> queries, ItemsSeeker.Condition condition, String categoryId, int itemsLimit, int partitionThreshold) {
+            this.queries = queries;
+            this.condition = condition;
+            this.categoryId = categoryId;
+            this.itemsLimit = itemsLimit;
+            this.partitionThreshold = partitionThreshold;
+        }
+    }
+
+    static class PageRecord {
+        String query;
+        ItemsSeeker.CallType callType;
+        String priceBand; //null if the page is not of a price band
+        int page;
+        int itemsTotal;
+        String searchUrl;
+        boolean isSuccess;
+        List<Item> items;
+
+        PageRecord(PageRequest page, Result pageResult) {
+            this.query = page.getQuery();
+            this.callType = page.getCallType();
+            this.priceBand = page.getBand().isAll() ? null : page.getBand().getKey();
+            this.page = page.getPage();
+            this.itemsTotal = callType.equals(ItemsSeeker.CallType.ACTIVE)
+                    ? pageResult.getActiveItemsTotal() : pageResult.getCompleteItemsTotal();
+            this.searchUrl = pageResult.getSearchUrl();
+            this.isSuccess = pageResult.getIsSuccess();
+            this.items = pageResult.getItems();
+        }
+
+        PageRequest toPageRequest() {
+            return new PageRequest(query, callType, PriceBand.parse(priceBand), page);
+        }
+
+        Result toResult() {
+            Result result = new Result(query);
+            if (callType.equals(ItemsSeeker.CallType.ACTIVE)) result.setActiveItemsTotal(itemsTotal);
+            else result.setCompleteItemsTotal(itemsTotal);
+            result.setSearchUrl(searchUrl);
+            result.setIsSuccess(isSuccess);
+            result.addItems(items);
+            return result;
+        }
+    }
+}
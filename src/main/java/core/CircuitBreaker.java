@@ -0,0 +1,67 @@
+package core;
+
+//Pauses requests dispatching when the share of failures among the last requests is too high
+public class CircuitBreaker {
+
+    private final boolean[] window; //true - failure
+    private final double failureRatio;
+    private final long pauseMillis;
+
+    private int position;
+    private int samples;
+    private int failures;
+    private long openUntil;
+
+    public CircuitBreaker(int windowSize, double failureRatio, long pauseMillis) {
+        if (windowSize < 1 || failureRatio <= 0 || failureRatio > 1) throw new IllegalArgumentException();
+        this.window = new boolean[windowSize];
+        this.failureRatio = failureRatio;
+        this.pauseMillis = pauseMillis;
+    }
+
+    public static CircuitBreaker defaultBreaker() {
+        return new CircuitBreaker(20, 0.5, 10000);
+    }
+
+    public synchronized void onSuccess() {
+        record(false);
+    }
+
+    //Returns true if this failure has opened the circuit
+    public synchronized boolean onFailure() {
+        record(true);
+        if (samples == window.length && failures >= failureRatio * samples && !isOpen()) {
+            openUntil = System.currentTimeMillis() + pauseMillis;
+            reset(); //After the pause requests start with a clean window
+            return true;
+        }
+        return false;
+    }
+
+    private void record(boolean isFailure) {
+        if (samples == window.length && window[position]) failures--;
+        window[position] = isFailure;
+        if (isFailure) failures++;
+        position = (position + 1) % window.length;
+        if (samples < window.length) samples++;
+    }
+
+    private void reset() {
+        position = 0;
+        samples = 0;
+        failures = 0;
+    }
+
+    private boolean isOpen() {
+        return getRemainingPause() > 0;
+    }
+
+    //Time in millis until dispatching may be resumed, 0 if the circuit is closed
+    public synchronized long getRemainingPause() {
+        return Math.max(openUntil - System.currentTimeMillis(), 0);
+    }
+
+    public long getPauseMillis() {
+        return pauseMillis;
+    }
+}
@@ -0,0 +1,84 @@
+package core;
+
+import java.util.Arrays;
+
+//AIMD limiter of in-flight requests. Latency is measured by the median of windows of successful responses: the limit
+//grows by one per window which is about as fast as the smoothed latency of the previous windows, and is cut down on
+//timeouts, error acks and windows much slower than that. Single slow responses (jitter) don't cut the limit
+public class ConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.75;
+    private static final double LATENCY_TOLERANCE = 2.0; //Window median above smoothed latency * tolerance is treated as overload
+    private static final double SMOOTHING = 0.2; //Weight of the last window in the smoothed latency
+    private static final int MIN_WINDOW = 10; //Responses in a window, a window has at least as many responses as the limit
+
+    private final String name;
+    private Logger logger;
+    private int minLimit;
+    private int maxLimit;
+    private double limit;
+    private double smoothedLatency = -1;
+    private long[] window = new long[MIN_WINDOW]; //Latencies of the current window
+    private int windowSize;
+
+    public ConcurrencyLimiter(String name, int minLimit, int maxLimit) {
+        this.name = name;
+        this.limit = maxLimit; //Starts as the former fixed number of threads and goes down only on overload
+        setBounds(minLimit, maxLimit);
+    }
+
+    public synchronized void onSuccess(long latencyMillis) {
+        int size = Math.max(MIN_WINDOW, getLimit());
+        if (window.length < size) window = Arrays.copyOf(window, size);
+        window[windowSize++] = latencyMillis;
+        if (windowSize < size) return;
+        Arrays.sort(window, 0, windowSize);
+        long latency = window[windowSize / 2];
+        windowSize = 0;
+        if (smoothedLatency < 0) smoothedLatency = latency;
+
+        if (latency > smoothedLatency * LATENCY_TOLERANCE) decrease();
+        else update(Math.min(maxLimit, limit + 1));
+        //Sustained slowdown is followed by the smoothed latency, so the limit is cut only until it settles
+        smoothedLatency += (latency - smoothedLatency) * SMOOTHING;
+    }
+
+    //Timeout, throttling or error response
+    public synchronized void onDropped() {
+        decrease();
+    }
+
+    private void decrease() {
+        update(Math.max(minLimit, limit * BACKOFF_RATIO));
+    }
+
+    private void update(double newLimit) {
+        int oldValue = getLimit();
+        limit = newLimit;
+        if (getLimit() != oldValue && logger != null) logger.log(name + " - concurrency limit changed to " + getLimit());
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized void setBounds(int minLimit, int maxLimit) {
+        if (minLimit < 1 || maxLimit < minLimit) throw new IllegalArgumentException();
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        if (smoothedLatency < 0) limit = maxLimit; //No latency measured yet, so the new upper bound is the start
+        else limit = Math.min(Math.max(limit, minLimit), maxLimit);
+    }
+
+    public synchronized int getMinLimit() {
+        return minLimit;
+    }
+
+    public synchronized int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setLogger(Logger logger) {
+        this.logger = logger;
+    }
+}
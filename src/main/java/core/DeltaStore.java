@@ -0,0 +1,114 @@
+package core;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import core.entities.Item;
+import core.entities.Result;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+//Results of previous runs for the delta mode of ItemsSeeker (see setDeltaStore). Every query is kept in its own
+//gzipped JSON file named by the SHA-256 of the canonical query, so only queries being loaded are held in memory
+public class DeltaStore {
+
+    private static final String SUFFIX = ".json.gz";
+
+    private final Path dir;
+    private final Gson gson = new Gson();
+
+    public DeltaStore(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+    }
+
+    //Returns null if the query wasn't stored yet or was stored with other filters
+    Record read(String query, ItemsSeeker.Condition condition, String categoryId) throws IOException {
+        String key = QueryCanonicalizer.canonicalize(query);
+        Path file = getFile(key);
+        if (!Files.exists(file)) return null;
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8)) {
+            Record record = gson.fromJson(reader, Record.class);
+            if (record == null || !key.equals(record.key) || record.condition != condition
+                    || !Objects.equals(categoryId, record.categoryId)) return null;
+            return record;
+        } catch (JsonParseException e) {
+            throw new IOException("Stored result is broken: " + file, e);
+        }
+    }
+
+    //File is replaced at once, so a run stopped while writing keeps the previous result
+    void write(Result result, ItemsSeeker.Condition condition, String categoryId) throws IOException {
+        Record record = new Record(result, condition, categoryId);
+        Path file = getFile(record.key);
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8)) {
+            gson.toJson(record, writer);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Stored key is checked on read as well, so a file of another query is never used
+    private Path getFile(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2 + SUFFIX.length());
+            for (byte b : hash) name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            return dir.resolve(name.append(SUFFIX).toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); //SHA-256 is supported by every JVM
+        }
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+
+    static class Record {
+        String key;
+        String query;
+        ItemsSeeker.Condition condition;
+        String categoryId;
+        long savedAt;
+        int activeItemsTotal;
+        int completeItemsTotal;
+        List<Item> items;
+
+        Record(Result result, ItemsSeeker.Condition condition, String categoryId) {
+            this.key = QueryCanonicalizer.canonicalize(result.getQuery());
+            this.query = result.getQuery();
+            this.condition = condition;
+            this.categoryId = categoryId;
+            this.savedAt = System.currentTimeMillis();
+            this.activeItemsTotal = result.getActiveItemsTotal();
+            this.completeItemsTotal = result.getCompleteItemsTotal();
+            this.items = new ArrayList<>(result.getItems());
+        }
+
+        List<Item> getItems() {
+            return items;
+        }
+
+        //Ids of active or of complete items
+        LongHashSet getIds(boolean isComplete) {
+            LongHashSet ids = new LongHashSet(items.size());
+            for (Item item : items) {
+                if (item.isComplete() == isComplete) ids.add(LongHashSet.itemKey(item.getItemId()));
+            }
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package core;
+
+import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+//Disk cache of API responses. Added as an application interceptor, so cache hits don't touch the network at all.
+//Entries are keyed by the request URL without the App ID, each operation has its own TTL.
+//Bodies are gzipped and appended to segment files; index of live entries is kept in memory in LRU order.
+//Removed entries are marked by tombstone records and old segments are compacted, so the files take at most
+//about twice the cache size
+public class DiskCache implements Interceptor {
+
+    public static final String CACHE_HEADER = "X-Scraper-Cache";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    private static final long SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final int TOMBSTONE = -1;
+
+    private final Path dir;
+    private final long maxSize;
+    private final Map<String, Long> ttls = new HashMap<>(); //OPERATION-NAME -> TTL in millis
+    private LinkedHashMap<String, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private final TreeSet<Integer> segments = new TreeSet<>();
+    private long size; //Records of live entries
+    private long diskSize; //All segment files
+    private int segment;
+    private long segmentPosition;
+    private OutputStream segmentOut;
+    private long hits;
+    private long misses;
+
+    public DiskCache(Path dir, long maxSizeBytes) throws IOException {
+        this.dir = dir;
+        this.maxSize = maxSizeBytes;
+        ttls.put(ItemsSeeker.CallType.ACTIVE.getName(), 60 * 60 * 1000L);
+        ttls.put(ItemsSeeker.CallType.COMPLETED.getName(), 12 * 60 * 60 * 1000L);
+        Files.createDirectories(dir);
+        load();
+    }
+
+    @NotNull
+    @Override
+    public Response intercept(@NotNull Chain chain) throws IOException {
+        Request request = chain.request();
+        long ttl = getTtl(request.url());
+        if (ttl <= 0 || !request.method().equals("GET")) return chain.proceed(request);
+
+        String key = getKey(request.url());
+        Entry entry = get(key, ttl);
+        if (entry != null) {
+            byte[] body = read(entry);
+            if (body != null) {
+                long now = System.currentTimeMillis();
+                return new Response.Builder()
+                        .request(request)
+                        .protocol(Protocol.HTTP_1_1)
+                        .code(200)
+                        .message("OK")
+                        .header(CACHE_HEADER, "HIT")
+                        .body(ResponseBody.create(body, MediaType.parse(entry.contentType)))
+                        .sentRequestAtMillis(now)
+                        .receivedResponseAtMillis(now)
+                        .build();
+            }
+        }
+        synchronized (this) {
+            misses++;
+        }
+
+        Response response = chain.proceed(request);
+        ResponseBody responseBody = response.body();
+        if (response.code() != 200 || responseBody == null) return response;
+        MediaType contentType = responseBody.contentType();
+        byte[] body = responseBody.bytes();
+        put(key, body, contentType == null ? "" : contentType.toString());
+        return response.newBuilder().body(ResponseBody.create(body, contentType)).build();
+    }
+
+    public static boolean isCacheHit(Response response) {
+        return response.header(CACHE_HEADER) != null;
+    }
+
+    //Cached response is fresh and may be used without acquiring a network call permit
+    public synchronized boolean contains(HttpUrl url) {
+        long ttl = getTtl(url);
+        if (ttl <= 0) return false;
+        Entry entry = index.get(getKey(url));
+        return entry != null && System.currentTimeMillis() - entry.storedAt <= ttl;
+    }
+
+    //Used for responses which turned out to be errors (error ack, broken body) to not serve them again
+    public synchronized void invalidate(HttpUrl url) {
+        String key = getKey(url);
+        if (remove(key) != null) {
+            try {
+                append(encode(key, 0, "", null));
+                compact();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private synchronized Entry get(String key, long ttl) {
+        Entry entry = index.get(key);
+        if (entry == null) return null;
+        if (System.currentTimeMillis() - entry.storedAt > ttl) {
+            remove(key);
+            return null;
+        }
+        hits++;
+        return entry;
+    }
+
+    //Body is compressed and the record is built before the lock is taken, only the index and the append are guarded
+    private void put(String key, byte[] body, String contentType) {
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(body);
+            }
+            long storedAt = System.currentTimeMillis();
+            byte[] compressedBody = compressed.toByteArray();
+            byte[] record = encode(key, storedAt, contentType, compressedBody);
+            synchronized (this) {
+                remove(key);
+                long offset = append(record);
+                Entry entry = new Entry(key, segment, offset + record.length - compressedBody.length, compressedBody.length,
+                        record.length, storedAt, contentType);
+                index.put(key, entry);
+                size += entry.recordLength;
+                evict();
+                compact();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private byte[] read(Entry entry) {
+        try {
+            byte[] compressed = readCompressed(entry);
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(entry.length * 4);
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = gzip.read(buffer)) != -1) out.write(buffer, 0, count);
+                return out.toByteArray();
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                //Segment was compacted while the entry was read, the response is loaded again
+                if (index.get(entry.key) != entry) return null;
+                remove(entry.key);
+            }
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private byte[] readCompressed(Entry entry) throws IOException {
+        byte[] compressed = new byte[entry.length];
+        try (RandomAccessFile file = new RandomAccessFile(segmentPath(entry.segment).toFile(), "r")) {
+            file.seek(entry.offset);
+            file.readFully(compressed);
+        }
+        return compressed;
+    }
+
+    //Least recently used entries are dropped until the cache fits into maxSize. Tombstones keep them dropped after reopen
+    private void evict() throws IOException {
+        Iterator<Entry> iterator = index.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            size -= entry.recordLength;
+            append(encode(entry.key, 0, "", null));
+        }
+    }
+
+    private Entry remove(String key) {
+        Entry entry = index.remove(key);
+        if (entry != null) size -= entry.recordLength;
+        return entry;
+    }
+
+    //When removed records take more space than the cache, the oldest segment is rewritten: its live entries are
+    //appended again and the file is deleted. Segments are dropped oldest first, so a tombstone is never dropped
+    //while the record it removes is still on disk
+    private void compact() throws IOException {
+        for (int i = segments.size(); i > 0 && diskSize > 2 * maxSize; i--) {
+            int oldest = segments.first();
+            if (oldest == segment) openSegment(segment + 1);
+            LinkedHashMap<String, Entry> compacted = new LinkedHashMap<>(index.size() * 2, 0.75f, true);
+            for (Entry entry : index.values()) {
+                if (entry.segment == oldest) {
+                    byte[] body = readCompressed(entry);
+                    byte[] record = encode(entry.key, entry.storedAt, entry.contentType, body);
+                    long offset = append(record);
+                    entry = new Entry(entry.key, segment, offset + record.length - body.length, body.length,
+                            record.length, entry.storedAt, entry.contentType);
+                }
+                compacted.put(entry.key, entry);
+            }
+            index = compacted; //Same LRU order, as entries are put in it
+            Path path = segmentPath(oldest);
+            diskSize -= Files.size(path);
+            Files.delete(path);
+            segments.remove(oldest);
+        }
+    }
+
+    //Record: key, storedAt, content type, body length (TOMBSTONE for removed key), gzipped body
+    private static byte[] encode(String key, long storedAt, String contentType, byte[] body) throws IOException {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(64 + (body == null ? 0 : body.length));
+        DataOutputStream out = new DataOutputStream(record);
+        out.writeUTF(key);
+        out.writeLong(storedAt);
+        out.writeUTF(contentType);
+        out.writeInt(body == null ? TOMBSTONE : body.length);
+        if (body != null) out.write(body);
+        out.flush();
+        return record.toByteArray();
+    }
+
+    //Returns the offset of the record in the current segment
+    private long append(byte[] record) throws IOException {
+        if (segmentOut == null || segmentPosition >= SEGMENT_SIZE) openSegment(segment + 1);
+        long offset = segmentPosition;
+        segmentOut.write(record);
+        segmentOut.flush();
+        segmentPosition += record.length;
+        diskSize += record.length;
+        return offset;
+    }
+
+    private void openSegment(int newSegment) throws IOException {
+        if (segmentOut != null) segmentOut.close();
+        segment = newSegment;
+        segments.add(segment);
+        Path path = segmentPath(segment);
+        segmentPosition = Files.exists(path) ? Files.size(path) : 0;
+        segmentOut = new BufferedOutputStream(new FileOutputStream(path.toFile(), true));
+    }
+
+    //Rebuilding index by replaying all segments from the oldest one
+    private void load() throws IOException {
+        List<Integer> found;
+        try (Stream<Path> files = Files.list(dir)) {
+            found = files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX))
+                    .map(n -> Integer.parseInt(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (int s : found) {
+            segment = s;
+            segments.add(s);
+            byte[] data = Files.readAllBytes(segmentPath(s));
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            int position = 0;
+            try {
+                while (position < data.length) {
+                    int start = position;
+                    String key = in.readUTF();
+                    long storedAt = in.readLong();
+                    String contentType = in.readUTF();
+                    int length = in.readInt();
+                    int offset = data.length - in.available();
+                    if (length > 0) in.readFully(new byte[length]);
+                    position = data.length - in.available();
+                    remove(key);
+                    if (length == TOMBSTONE) continue;
+                    Entry entry = new Entry(key, s, offset, length, position - start, storedAt, contentType);
+                    index.put(key, entry);
+                    size += entry.recordLength;
+                }
+            } catch (EOFException e) {
+                //Record was not written completely, cutting it off so new records are appended after the last valid one
+                try (RandomAccessFile file = new RandomAccessFile(segmentPath(s).toFile(), "rw")) {
+                    file.setLength(position);
+                }
+            }
+            diskSize += position;
+        }
+        evict();
+        compact();
+    }
+
+    //Request URL without the App ID and with sorted parameters
+    static String getKey(HttpUrl url) {
+        HttpUrl withoutAppName = url.newBuilder().removeAllQueryParameters("SECURITY-APPNAME").build();
+        StringBuilder key = new StringBuilder(withoutAppName.scheme())
+                .append("://").append(withoutAppName.host()).append(withoutAppName.encodedPath());
+        new TreeSet<>(withoutAppName.queryParameterNames()).forEach(name -> {
+            for (String value : withoutAppName.queryParameterValues(name))
+                key.append('&').append(name).append('=').append(value);
+        });
+        return key.toString();
+    }
+
+    private synchronized long getTtl(HttpUrl url) {
+        String operation = url.queryParameter("OPERATION-NAME");
+        //Pages of the delta mode are sorted newest first and change with every new listing
+        if (operation == null || url.queryParameter("sortOrder") != null) return 0;
+        return ttls.getOrDefault(operation, 0L);
+    }
+
+    //TTL for responses of the given API operation, 0 to not cache them
+    public synchronized void setTtl(String operationName, long ttlMillis) {
+        ttls.put(operationName, ttlMillis);
+    }
+
+    private Path segmentPath(int segment) {
+        return dir.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized void close() throws IOException {
+        if (segmentOut != null) segmentOut.close();
+        segmentOut = null;
+    }
+
+    private static class Entry {
+        private final String key;
+        private final int segment;
+        private final long offset; //of the body
+        private final int length; //of the body
+        private final int recordLength;
+        private final long storedAt;
+        private final String contentType;
+
+        private Entry(String key, int segment, long offset, int length, int recordLength, long storedAt, String contentType) {
+            this.key = key;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.recordLength = recordLength;
+            this.storedAt = storedAt;
+            this.contentType = contentType;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package core;
+
+//Lets a consumer of results pause sending of new requests, e.g. when it can't keep up with loaded pages.
+//Requests which are already in flight are completed, the run isn't finished while the gate is closed
+public class DispatchGate {
+
+    private boolean isOpen = true;
+    private Runnable onOpen;
+
+    public synchronized boolean isOpen() {
+        return isOpen;
+    }
+
+    public void open() {
+        Runnable onOpen;
+        synchronized (this) {
+            if (isOpen) return;
+            isOpen = true;
+            notifyAll();
+            onOpen = this.onOpen;
+        }
+        if (onOpen != null) onOpen.run();
+    }
+
+    public synchronized void close() {
+        isOpen = false;
+    }
+
+    synchronized void awaitOpen() throws InterruptedException {
+        while (!isOpen) wait();
+    }
+
+    //Seeker resumes sending when the gate is opened again
+    synchronized void setOnOpen(Runnable onOpen) {
+        this.onOpen = onOpen;
+    }
+}
@@ -0,0 +1,49 @@
+package core;
+
+//Base URLs of the used APIs. Defaults are production services, they may be replaced with system properties
+//(-Dendpoint.finding=..., -Dendpoint.shopping=..., -Dendpoint.discogs=...) or setters, e.g. to run against a local stand-in server.
+//Seekers and convertors read the URL when they are started
+public class Endpoints {
+
+    public static final String FINDING_PATH = "/services/search/FindingService/v1";
+    public static final String SHOPPING_PATH = "/Shopping";
+    public static final String DISCOGS_PATH = "/database/search";
+
+    private static volatile String findingUrl = System.getProperty("endpoint.finding", "https://svcs.ebay.com" + FINDING_PATH);
+    private static volatile String shoppingUrl = System.getProperty("endpoint.shopping", "https://open.api.ebay.com" + SHOPPING_PATH);
+    private static volatile String discogsUrl = System.getProperty("endpoint.discogs", "https://api.discogs.com" + DISCOGS_PATH);
+
+    private Endpoints() {}
+
+    //Points all APIs to one server which serves them by their production paths
+    public static void useServer(String serverUrl) {
+        String base = serverUrl.endsWith("/") ? serverUrl.substring(0, serverUrl.length() - 1) : serverUrl;
+        findingUrl = base + FINDING_PATH;
+        shoppingUrl = base + SHOPPING_PATH;
+        discogsUrl = base + DISCOGS_PATH;
+    }
+
+    public static String getFindingUrl() {
+        return findingUrl;
+    }
+
+    public static void setFindingUrl(String findingUrl) {
+        Endpoints.findingUrl = findingUrl;
+    }
+
+    public static String getShoppingUrl() {
+        return shoppingUrl;
+    }
+
+    public static void setShoppingUrl(String shoppingUrl) {
+        Endpoints.shoppingUrl = shoppingUrl;
+    }
+
+    public static String getDiscogsUrl() {
+        return discogsUrl;
+    }
+
+    public static void setDiscogsUrl(String discogsUrl) {
+        Endpoints.discogsUrl = discogsUrl;
+    }
+}
@@ -0,0 +1,148 @@
+package core;
+
+import okhttp3.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+//One OkHttpClient shared by all API clients of the app for its whole lifetime, so connections, DNS results
+//and dispatcher threads are reused between runs. Components get their own timeouts and interceptors
+//with newClient(), clients made this way share the dispatcher and the connection pool.
+//Pool keeps at least as many idle connections as requests allowed in flight, so connections aren't closed and reopened
+public class HttpTransport {
+
+    private static final int MAX_IDLE_CONNECTIONS = 16;
+    private static final long KEEP_ALIVE = 5; //minutes
+    private static HttpTransport shared;
+
+    private OkHttpClient client; //Guarded by this, replaced when the pool grows
+    private int poolSize = MAX_IDLE_CONNECTIONS; //Guarded by this
+    private final Map<String, HostStats> hostStats = new ConcurrentHashMap<>();
+
+    public static synchronized HttpTransport shared() {
+        if (shared == null) shared = new HttpTransport();
+        return shared;
+    }
+
+    private HttpTransport() {
+        //Daemon threads don't keep the app alive after its window is closed
+        ExecutorService executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "HTTP dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequestsPerHost(MAX_IDLE_CONNECTIONS);
+        client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE, TimeUnit.MINUTES))
+                .eventListenerFactory(StatsListener::new)
+                .build();
+    }
+
+    public synchronized OkHttpClient.Builder newClient() {
+        return client.newBuilder();
+    }
+
+    //Allows the configured number of requests in flight to every host. Limit is never lowered, because it's shared.
+    //OkHttp pool can't be resized, so a larger one replaces it; clients made before keep the old pool
+    public synchronized void ensureConcurrency(int maxRequestsPerHost) {
+        Dispatcher dispatcher = client.dispatcher();
+        if (maxRequestsPerHost > dispatcher.getMaxRequestsPerHost()) dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        if (maxRequestsPerHost > dispatcher.getMaxRequests()) dispatcher.setMaxRequests(maxRequestsPerHost);
+        if (maxRequestsPerHost > poolSize) {
+            ConnectionPool oldPool = client.connectionPool();
+            poolSize = maxRequestsPerHost;
+            client = client.newBuilder()
+                    .connectionPool(new ConnectionPool(poolSize, KEEP_ALIVE, TimeUnit.MINUTES))
+                    .build();
+            oldPool.evictAll(); //Idle connections only, the ones of calls in flight expire after the keep-alive
+        }
+    }
+
+    public synchronized int getIdleConnections() {
+        return client.connectionPool().idleConnectionCount();
+    }
+
+    public Map<String, HostStats> getHostStats() {
+        return Collections.unmodifiableMap(new TreeMap<>(hostStats));
+    }
+
+    private HostStats statsOf(Call call) {
+        return hostStats.computeIfAbsent(call.request().url().host(), k -> new HostStats());
+    }
+
+    //Created for every call. Calls tagged with CallMetrics also record their latency and received bytes there
+    private class StatsListener extends EventListener {
+        private final CallMetrics metrics;
+        private long startNanos;
+
+        StatsListener(Call call) {
+            metrics = call.request().tag(CallMetrics.class);
+        }
+
+        @Override
+        public void callStart(Call call) {
+            statsOf(call).calls.incrementAndGet();
+            startNanos = System.nanoTime();
+            if (metrics != null) metrics.onRequest();
+        }
+
+        @Override
+        public void responseHeadersEnd(Call call, Response response) {
+            if (metrics != null) metrics.recordLatency((System.nanoTime() - startNanos) / 1000000);
+        }
+
+        @Override
+        public void responseBodyEnd(Call call, long byteCount) {
+            if (metrics != null) metrics.onBytesReceived(byteCount);
+        }
+
+        @Override
+        public void callFailed(Call call, IOException ioe) {
+            if (metrics != null) metrics.onError();
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+            statsOf(call).connections.incrementAndGet();
+        }
+
+        @Override
+        public void connectionAcquired(Call call, Connection connection) {
+            statsOf(call).acquired.incrementAndGet();
+        }
+    }
+
+    public static class HostStats {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong connections = new AtomicLong();
+        private final AtomicLong acquired = new AtomicLong();
+
+        public long getCalls() {
+            return calls.get();
+        }
+
+        //New TCP (and TLS) connections opened to the host
+        public long getConnections() {
+            return connections.get();
+        }
+
+        //Calls served by an already opened connection
+        public long getReused() {
+            return Math.max(acquired.get() - connections.get(), 0);
+        }
+
+        @Override
+        public String toString() {
+            return calls.get() + " calls, " + getConnections() + " connections opened, " + getReused() + " reused";
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package core;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+//Run-wide index of found items: every item id is kept with the queries which found it,
+//so it is known how many unique items were found and how many items each pair of queries shares.
+//Items are split into stripes with their own locks, so queries merging pages on different threads rarely wait.
+//Index grows with every query and item of the run, so it is used only when results are retained
+public class ItemOverlaps {
+
+    private static final int STRIPES = 64; //Power of two
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Map<String, Integer> queryIndexes = new ConcurrentHashMap<>();
+    private final Map<Integer, String> queries = new ConcurrentHashMap<>();
+    private final AtomicInteger queriesCount = new AtomicInteger();
+    private final Map<Long, Integer> pairs = new ConcurrentHashMap<>(); //Number of shared items by pair of query indexes
+    private final LongAdder uniqueItems = new LongAdder();
+    private final LongAdder sharedItems = new LongAdder();
+
+    public ItemOverlaps() {
+        for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe();
+    }
+
+    //Index of the query used by add(), the same for every call with the query
+    int getQueryIndex(String query) {
+        return queryIndexes.computeIfAbsent(query, q -> {
+            int index = queriesCount.getAndIncrement();
+            queries.put(index, q);
+            return index;
+        });
+    }
+
+    //Returns true if the item was found by another query before. Overlap is counted with every query which found it
+    boolean add(int query, long itemKey) {
+        int hash = LongHashSet.hash(itemKey);
+        int[] previousOwners = stripes[hash >>> (32 - Integer.numberOfTrailingZeros(STRIPES))].add(hash, itemKey, query);
+        if (previousOwners == null) {
+            uniqueItems.increment();
+            return false;
+        }
+        if (previousOwners.length == 0) return false;
+        for (int owner : previousOwners) pairs.merge(pairKey(owner, query), 1, Integer::sum);
+        sharedItems.increment();
+        return true;
+    }
+
+    private static long pairKey(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    public long getUniqueItems() {
+        return uniqueItems.sum();
+    }
+
+    //Items found by more than one query, every repeated finding is counted
+    public long getSharedItems() {
+        return sharedItems.sum();
+    }
+
+    public int getOverlap(String query, String otherQuery) {
+        Integer a = queryIndexes.get(query);
+        Integer b = queryIndexes.get(otherQuery);
+        if (a == null || b == null || a.equals(b)) return 0;
+        return pairs.getOrDefault(pairKey(a, b), 0);
+    }
+
+    //Queries sharing items with the query and numbers of shared items
+    public Map<String, Integer> getOverlaps(String query) {
+        Map<String, Integer> overlaps = new LinkedHashMap<>();
+        Integer index = queryIndexes.get(query);
+        if (index == null) return overlaps;
+        for (Map.Entry<Long, Integer> pair : pairs.entrySet()) {
+            int a = (int) (pair.getKey() >>> 32);
+            int b = (int) (long) pair.getKey();
+            if (a == index) overlaps.put(queries.get(b), pair.getValue());
+            else if (b == index) overlaps.put(queries.get(a), pair.getValue());
+        }
+        return overlaps;
+    }
+
+    //Open addressing map of item ids to their first query. Later queries of shared items, which are few, are kept apart
+    private static class Stripe {
+        private long[] keys = new long[64];
+        private int[] owners = new int[64]; //query index + 1, 0 marks free slots
+        private int size;
+        private final Map<Long, int[]> moreOwners = new HashMap<>();
+
+        //Returns null for a new item, queries which found the item before or an empty array if the query found it already
+        synchronized int[] add(int hash, long itemKey, int query) {
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (owners[slot] != 0) {
+                if (keys[slot] == itemKey) return addOwner(slot, query);
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = itemKey;
+            owners[slot] = query + 1;
+            if (++size > keys.length * LOAD_FACTOR) rehash();
+            return null;
+        }
+
+        private int[] addOwner(int slot, int query) {
+            int first = owners[slot] - 1;
+            int[] others = moreOwners.getOrDefault(keys[slot], new int[0]);
+            if (first == query) return new int[0];
+            for (int owner : others) {
+                if (owner == query) return new int[0];
+            }
+            int[] previous = Arrays.copyOf(others, others.length + 1);
+            System.arraycopy(previous, 0, previous, 1, others.length);
+            previous[0] = first;
+            int[] updated = Arrays.copyOf(others, others.length + 1);
+            updated[others.length] = query;
+            moreOwners.put(keys[slot], updated);
+            return previous;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldOwners = owners;
+            keys = new long[oldKeys.length * 2];
+            owners = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldOwners[i] == 0) continue;
+                int slot = LongHashSet.hash(oldKeys[i]) & mask;
+                while (owners[slot] != 0) slot = (slot + 1) & mask;
+                keys[slot] = oldKeys[i];
+                owners[slot] = oldOwners[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package core;
+
+import com.google.gson.JsonObject;
+import core.entities.Item;
+import core.entities.Result;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+//Writes every found item to a file as a JSON line
+public class ItemsFileSink implements ResultSink {
+
+    private final BufferedWriter writer;
+    private Logger logger;
+
+    public ItemsFileSink(Path file) throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void onItems(Result result, List<Item> items) {
+        try {
+            for (Item item : items) {
+                JsonObject json = new JsonObject();
+                json.addProperty("query", result.getQuery());
+                json.addProperty("itemId", item.getItemId());
+                json.addProperty("price", item.getPrice());
+                json.addProperty("sellingStatus", item.getSellingStatus());
+                json.addProperty("itemUrl", item.getItemUrl());
+                writer.write(json.toString());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            if (logger != null) logger.log("Unable to write items of query " + result.getQuery() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void onCompleted(Result result) {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            if (logger != null) logger.log("Unable to write items of query " + result.getQuery() + ": " + e.getMessage());
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    public void setLogger(Logger logger) {
+        this.logger = logger;
+    }
+}
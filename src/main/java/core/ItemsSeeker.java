@@ -1,18 +1,16 @@
 package core;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 import core.entities.Item;
 import core.entities.Result;
 import okhttp3.*;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class ItemsSeeker {
@@ -22,41 +20,169 @@ public class ItemsSeeker {
     private Callback callback;
     private HttpUrl preparedUrl;
     private ResultsLoadingListener resultsLoadingListener;
-    private CallType callType;
 
-    private final String BASE_URL = "https://svcs.ebay.com/services/search/FindingService/v1";
+    //Responses are parsed in parallel on OkHttp threads, each query is merged under the lock of its own state.
+    //Requests are sent by one thread at a time: others only signal the dispatcher, which also detects completion
+    private volatile boolean isRunning = false;
+    private final AtomicInteger threads = new AtomicInteger();
+    private final AtomicInteger dispatchSignals = new AtomicInteger();
+    private final AtomicBoolean isFinished = new AtomicBoolean();
+    private volatile boolean isSourceDrained;
+    private RateLimiter rateLimiter;
+    private ScheduledExecutorService scheduler;
+    private final AtomicBoolean isDispatchScheduled = new AtomicBoolean();
+    private RetryPolicy retryPolicy = RetryPolicy.defaultPolicy();
+    private CircuitBreaker circuitBreaker = CircuitBreaker.defaultBreaker();
+    private final AtomicInteger retriesScheduled = new AtomicInteger();
+    private DiskCache diskCache;
+    private Checkpoint checkpoint;
+    private DeltaStore deltaStore;
 
-    private boolean isRunning = false;
-    private int threads;
-
-    private Deque<String> unprocessed = new ConcurrentLinkedDeque<>();
+    private Scheduling scheduling = Scheduling.FIFO;
+    private final Map<String, Integer> queryPriorities = new ConcurrentHashMap<>();
+    private PageQueue unprocessed;
+    private Deque<PageRequest> retries = new ConcurrentLinkedDeque<>();
+    private final List<String> queries; //null if queries are streamed
+    private Iterator<String> querySource;
+    private boolean retainResults = true;
+    private Result.ItemsStorage itemsStorage = Result.ItemsStorage.OBJECTS;
+    private ResultSink resultSink;
+    private ItemOverlaps itemOverlaps;
+    private DispatchGate dispatchGate;
+    private final Metrics metrics = Metrics.of("ItemsSeeker");
     private final String APP_NAME;
     private final Condition condition;
 
     private final int MAX_ITEMS_PER_PAGE = 100; //limit from docs: https://developer.ebay.com/DevZone/finding/CallRef/findItemsByKeywords.html#Request.paginationInput
     private final int MAX_PAGE_NUMBER = 100; //limit from docs
+    private static final int MAX_BANDS_PER_SPLIT = 8;
+    private static final Set<String> RATE_LIMIT_ERRORS = new HashSet<>(Collections.singletonList("10001")); //Calls limit exceeded
+    static final long SOURCE_POLL_DELAY = 500;
     private int itemsLimit = MAX_ITEMS_PER_PAGE * MAX_PAGE_NUMBER; //default items limit: 10 000
-    private int maxThreads = 5;
+    private int partitionThreshold = 0;
+    private int priceFilterIndex; //Price band filters follow the condition filter
+    private ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter("Finding API", 1, 5);
     private long timeout = 10000;
     private String categoryId = null;
 
-    private LinkedHashMap<String, Result> results = new LinkedHashMap<>(); //Here stored all found results without duplicates
+    private Map<String, QueryState> states = new ConcurrentHashMap<>(); //Pagination state of every query
+    private Map<String, String> startedQueries = new ConcurrentHashMap<>(); //Loaded query by its canonical form
+    private boolean coalesceQueries = true;
+    private Map<String, Result> results = Collections.synchronizedMap(new LinkedHashMap<>()); //Here stored all found results without duplicates
 
     public ItemsSeeker(List<String> queries, String appname, Condition condition, ResultsLoadingListener resultsLoadingListener) {
-        unprocessed.addAll(queries.stream().distinct().collect(Collectors.toList()));
+        this(queries.stream().distinct().collect(Collectors.toList()), null, appname, condition, resultsLoadingListener);
+    }
+
+    //Queries are taken from the source only when there are free workers, so the source may be larger than memory.
+    //Duplicated queries are loaded once only while their results are kept. Source which has no query at the moment
+    //(e.g. it waits for a remote one) may return null from next(), it is asked again a bit later
+    public ItemsSeeker(Iterator<String> querySource, String appname, Condition condition, ResultsLoadingListener resultsLoadingListener) {
+        this(null, querySource, appname, condition, resultsLoadingListener);
+    }
+
+    ItemsSeeker(List<String> queries, Iterator<String> querySource, String appname, Condition condition,
+                ResultsLoadingListener resultsLoadingListener) {
+        this.queries = queries;
+        this.querySource = querySource != null ? querySource : queries.iterator();
         this.APP_NAME = appname;
+        this.rateLimiter = RateLimiter.forAppId(appname);
         this.condition = condition;
         this.resultsLoadingListener = resultsLoadingListener;
         initCallback();
-        callType = CallType.ACTIVE;
+    }
+
+    //Seeker with the given engine. Virtual threads engine is available only in builds made with the jdk21 profile
+    public static ItemsSeeker create(Engine engine, List<String> queries, String appname, Condition condition,
+                                     ResultsLoadingListener resultsLoadingListener) {
+        return create(engine, queries.stream().distinct().collect(Collectors.toList()), null, appname, condition, resultsLoadingListener);
+    }
+
+    public static ItemsSeeker create(Engine engine, Iterator<String> querySource, String appname, Condition condition,
+                                     ResultsLoadingListener resultsLoadingListener) {
+        return create(engine, null, querySource, appname, condition, resultsLoadingListener);
+    }
+
+    private static ItemsSeeker create(Engine engine, List<String> queries, Iterator<String> querySource, String appname,
+                                      Condition condition, ResultsLoadingListener resultsLoadingListener) {
+        if (engine == Engine.CALLBACKS) return new ItemsSeeker(queries, querySource, appname, condition, resultsLoadingListener);
+        try {
+            return (ItemsSeeker) Class.forName("core.VirtualThreadsItemsSeeker")
+                    .getDeclaredConstructor(List.class, Iterator.class, String.class, Condition.class, ResultsLoadingListener.class)
+                    .newInstance(queries, querySource, appname, condition, resultsLoadingListener);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            throw new UnsupportedOperationException("Virtual threads engine requires Java 21 and the build with the jdk21 profile", e);
+        }
     }
 
     public void start() {
-        client = new OkHttpClient.Builder().callTimeout(timeout, TimeUnit.MILLISECONDS).build();
-        threads = 0;
+        prepare();
+        if (dispatchGate != null) dispatchGate.setOnOpen(this::sendNewRequests);
+        metrics.setGauges(() -> unprocessed.size() + retries.size(), threads::get); //Sizes of the queues are counted only when read
+        if (checkpoint != null && queries == null) {
+            log("Checkpoint is not supported for streamed queries");
+            checkpoint = null;
+        }
+        if (checkpoint != null) {
+            if (!checkpoint.isResumed()) {
+                checkpoint.writeRun(new Checkpoint.RunRecord(queries, condition, categoryId, itemsLimit, partitionThreshold));
+            } else {
+                try {
+                    restore();
+                } catch (IOException e) {
+                    log("Unable to restore checkpoint");
+                    e.printStackTrace();
+                }
+            }
+        }
+        sendNewRequests(); //Resumed run may have nothing left to load, that is detected here as well
+    }
+
+    //Part of the start shared by all engines
+    void prepare() {
+        HttpTransport transport = HttpTransport.shared();
+        transport.ensureConcurrency(concurrencyLimiter.getMaxLimit());
+        OkHttpClient.Builder clientBuilder = transport.newClient().callTimeout(timeout, TimeUnit.MILLISECONDS);
+        if (diskCache != null) clientBuilder.addInterceptor(diskCache);
+        client = clientBuilder.build();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ItemsSeeker scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        threads.set(0);
+        dispatchSignals.set(0);
+        isFinished.set(false);
+        isSourceDrained = false;
+        isDispatchScheduled.set(false);
+        retriesScheduled.set(0);
+        if (deltaStore != null && itemsStorage == Result.ItemsStorage.NONE) {
+            log("Delta mode keeps items of results to store them, compact storage is used");
+            itemsStorage = Result.ItemsStorage.COMPACT;
+        }
+        if (deltaStore != null && partitionThreshold > 0) log("Price bands are not used in the delta mode");
+        if (itemOverlaps != null && !retainResults) log("Overlaps of queries are not counted when results aren't retained");
+        unprocessed = PageQueue.create(scheduling, query -> queryPriorities.getOrDefault(query, 0));
+        //Queries of higher priority are started first, queries of the same priority keep their order
+        if (queries != null && !queryPriorities.isEmpty()) {
+            List<String> ordered = new ArrayList<>(queries);
+            ordered.sort(Comparator.comparingInt(query -> -queryPriorities.getOrDefault(query, 0)));
+            querySource = ordered.iterator();
+        }
         prepareUrl();
         isRunning = true;
-        sendNewRequests();
+    }
+
+    //Creates seeker which continues the run saved in the checkpoint file without loading saved pages again
+    public static ItemsSeeker resume(Path checkpointFile, String appname, ResultsLoadingListener resultsLoadingListener) throws IOException {
+        Checkpoint checkpoint = Checkpoint.open(checkpointFile);
+        Checkpoint.RunRecord run = checkpoint.readRun();
+        ItemsSeeker seeker = new ItemsSeeker(run.queries, appname, run.condition, resultsLoadingListener);
+        seeker.setItemsLimit(run.itemsLimit);
+        seeker.setPartitionThreshold(run.partitionThreshold);
+        seeker.setCategoryId(run.categoryId);
+        seeker.checkpoint = checkpoint;
+        return seeker;
     }
 
     public void stop() {
@@ -64,197 +190,604 @@ public class ItemsSeeker {
         onFinish();
     }
 
+    //Any thread may call it. If another thread is sending requests now, that thread makes one more round instead
     private void sendNewRequests() {
-        while (isRunning && threads < maxThreads && !unprocessed.isEmpty()) {
-            String query = unprocessed.pop();
-            long page;
-            long maxOnPage;
-            Result result = results.get(query);
-            if (result == null) {
-                page = 1;
-                maxOnPage = Math.min(itemsLimit, MAX_ITEMS_PER_PAGE);
-            } else {
-                long itemsFound = callType.equals(CallType.ACTIVE) ? result.getActiveItemsFound() : result.getCompleteItemsFound();
-                page = Math.round(itemsFound * 1.0 / MAX_ITEMS_PER_PAGE) + 1;
-                maxOnPage = Math.min(itemsLimit - itemsFound, MAX_ITEMS_PER_PAGE);
+        if (dispatchSignals.getAndIncrement() != 0) return;
+        int signals = 1;
+        do {
+            dispatch();
+            checkIsComplete();
+            signals = dispatchSignals.addAndGet(-signals);
+        } while (signals != 0);
+    }
+
+    private void dispatch() {
+        while (isRunning && threads.get() < concurrencyLimiter.getLimit() && hasQueuedPages()
+                && (dispatchGate == null || dispatchGate.isOpen())) {
+            long pause = circuitBreaker.getRemainingPause();
+            if (pause > 0) {
+                scheduleDispatch(pause);
+                return;
             }
-            if (page > MAX_PAGE_NUMBER) {
-                log(String.format("%-30s%s", query, " - all items found on " + MAX_PAGE_NUMBER + " pages"));
+            PageRequest page = pollPage();
+            if (page == null) {
+                if (!isSourceDrained) scheduleDispatch(SOURCE_POLL_DELAY);
                 return;
             }
+            Request request = newRequest(page);
+            //Cached pages don't spend API calls
+            if (diskCache == null || !diskCache.contains(request.url())) {
+                long wait = rateLimiter.tryAcquire();
+                if (wait == RateLimiter.BUDGET_EXHAUSTED) {
+                    unprocessed.addFirst(page);
+                    dropUnprocessed();
+                    return;
+                }
+                if (wait > 0) {
+                    unprocessed.addFirst(page);
+                    scheduleDispatch(wait);
+                    return;
+                }
+            }
 
-            HttpUrl finalUrl = preparedUrl.newBuilder()
-                    .addQueryParameter("OPERATION-NAME", callType.name)
-                    .addQueryParameter("keywords", query)
-                    .addQueryParameter("paginationInput.pageNumber", String.valueOf(page))
-                    .addQueryParameter("paginationInput.entriesPerPage", String.valueOf(maxOnPage))
-                    .build();
-
-            Request request = new Request.Builder()
-                    .url(finalUrl)
-                    .build();
-            System.out.println(finalUrl.url());
-            threads++;
+            threads.incrementAndGet();
             client.newCall(request).enqueue(callback);
         }
     }
 
+    Request newRequest(PageRequest page) {
+        HttpUrl.Builder urlBuilder = preparedUrl.newBuilder()
+                .addQueryParameter("OPERATION-NAME", page.getCallType().getName())
+                .addQueryParameter("keywords", page.getQuery())
+                .addQueryParameter("paginationInput.pageNumber", String.valueOf(page.getPage()))
+                .addQueryParameter("paginationInput.entriesPerPage", String.valueOf(getItemsPerPage()));
+        //Newest items go first, so the delta mode stops at the items of the previous run
+        if (deltaStore != null)
+            urlBuilder.addQueryParameter("sortOrder", page.getCallType().equals(CallType.ACTIVE) ? "StartTimeNewest" : "EndTimeSoonest");
+        //Price filters. Docs - https://developer.ebay.com/DevZone/finding/CallRef/types/ItemFilterType.html
+        int filterIndex = priceFilterIndex;
+        if (page.getBand().hasMinPrice()) addPriceFilter(urlBuilder, filterIndex++, "MinPrice", page.getBand().getMinPrice());
+        if (page.getBand().hasMaxPrice()) addPriceFilter(urlBuilder, filterIndex, "MaxPrice", page.getBand().getMaxPrice());
+        return new Request.Builder()
+                .url(urlBuilder.build())
+                .tag(PageRequest.class, page)
+                .tag(CallMetrics.class, metrics.call(page.getCallType().getName()))
+                .build();
+    }
+
+    private static void addPriceFilter(HttpUrl.Builder urlBuilder, int index, String name, String price) {
+        String filter = "itemFilter(" + index + ")";
+        urlBuilder.addQueryParameter(filter + ".name", name)
+                .addQueryParameter(filter + ".value(0)", price)
+                .addQueryParameter(filter + ".paramName", "Currency")
+                .addQueryParameter(filter + ".paramValue", "USD");
+    }
+
+    private boolean hasQueuedPages() {
+        return !retries.isEmpty() || !unprocessed.isEmpty() || !isSourceDrained;
+    }
+
+    //Retries are only queued once their backoff delay has passed, so they go before fresh pages.
+    //Scheduling decides whether a new query goes before the queued pages
+    private PageRequest pollPage() {
+        PageRequest page = retries.poll();
+        if (page == null && !isSourceDrained && unprocessed.prefersNewQuery(concurrencyLimiter.getMaxLimit())) page = pullQuery();
+        if (page == null) page = unprocessed.poll();
+        return page;
+    }
+
+    //Next query is taken only when the scheduling allows it, so memory is held only by queries being loaded.
+    //Query source is read by the dispatching thread only
+    PageRequest pullQuery() {
+        while (querySource.hasNext()) {
+            String query = querySource.next();
+            if (query == null) return null;
+            if (coalesce(query)) continue;
+            QueryState state = new QueryState(query, itemsLimit, itemsStorage, resultSink, retainResults ? itemOverlaps : null);
+            if (deltaStore != null) state.setPrevious(readPrevious(query));
+            states.put(query, state);
+            return new PageRequest(query, CallType.ACTIVE, 1);
+        }
+        isSourceDrained = true;
+        return null;
+    }
+
+    //Query equivalent to a started one gets a copy of its result, updated along with it, instead of being loaded again.
+    //Returns false if the query has to be loaded. Result dropped after completion (see setRetainResults) is loaded again
+    private boolean coalesce(String query) {
+        String key = getQueryKey(query);
+        String started = startedQueries.get(key);
+        QueryState state = started != null ? states.get(started) : null;
+        Result alias = null;
+        Result notified = null; //Alias or its snapshot, see ResultsLoadingListener.needsSnapshots()
+        boolean isCompleted = false;
+        if (state != null) {
+            synchronized (state) {
+                if (!state.isCompleted() || retainResults) {
+                    alias = state.addAlias(query);
+                    isCompleted = state.isCompletionNotified();
+                    notified = resultsLoadingListener.needsSnapshots() ? alias.snapshot(isCompleted) : alias;
+                }
+            }
+        }
+        if (alias == null) {
+            startedQueries.put(key, query);
+            return false;
+        }
+        if (!query.equals(started)) log(String.format("%-30s%s", "Query: " + query, " - same search as \"" + started + "\""));
+        results.putIfAbsent(query, alias);
+        resultsLoadingListener.onResultReceived(notified);
+        if (isCompleted) resultsLoadingListener.onResultCompleted(notified);
+        return true;
+    }
+
+    //Query without a stored result is loaded in full
+    private DeltaStore.Record readPrevious(String query) {
+        try {
+            return deltaStore.read(query, condition, categoryId);
+        } catch (IOException e) {
+            log("Query: " + query + " - unable to read stored result, all items are loaded");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private String getQueryKey(String query) {
+        return coalesceQueries ? QueryCanonicalizer.canonicalize(query) : query;
+    }
+
+    //Sending is resumed when the rate limiter has a free token or the circuit breaker is closed again
+    private void scheduleDispatch(long delayMillis) {
+        if (!isDispatchScheduled.compareAndSet(false, true)) return;
+        scheduler.schedule(() -> {
+            isDispatchScheduled.set(false);
+            sendNewRequests();
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //Daily calls budget is over: remaining pages (including ones queued by moving to the next phase) are not sent
+    private void dropUnprocessed() {
+        log("Daily API calls budget is exhausted. Remaining pages are not loaded");
+        PageRequest page;
+        while ((page = pollPage()) != null) {
+            QueryState state = states.get(page.getQuery());
+            Result result = state.getResult();
+            results.putIfAbsent(result.getQuery(), result);
+            synchronized (state) {
+                failPage(state, page);
+                updatePhase(state);
+            }
+            notifyCompleted(state);
+        }
+    }
+
     private void initCallback() {
         callback = new Callback() {
+            //Pages queued by the response are added before the request leaves in-flight counter, so completion can't be missed
             @Override
-            public synchronized void onResponse(@NotNull Call call, @NotNull Response response) {
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
                 if (!isRunning) return;
-                threads--;
-                //Adding results
-                Result newResult = extractResult(response);
-                Result oldResult = results.get(newResult.getQuery());
-                Result result;
-                log(String.format("%-30s%s", "Query: " + response.request().url().queryParameter("keywords"),
-                        " - page " + response.request().url().queryParameter("paginationInput.pageNumber") + " loaded"));
-                if (oldResult == null) {
-                    results.put(newResult.getQuery(), newResult);
-                    result = newResult;
+                PageRequest page = call.request().tag(PageRequest.class);
+                QueryState state = states.get(page.getQuery());
+                Result result = state.getResult();
+                results.putIfAbsent(result.getQuery(), result);
+                Result pageResult = readPage(page, response);
+                if (pageResult == null) {
+                    onPageFailed(page);
                 } else {
-                    oldResult.getItems().addAll(newResult.getItems());
-                    oldResult.setCompleteItemsTotal(newResult.getCompleteItemsTotal());
-                    result = oldResult;
+                    synchronized (state) {
+                        if (isRejected(pageResult)) {
+                            failPage(state, page);
+                            updatePhase(state);
+                        } else {
+                            applyPage(state, page, pageResult);
+                        }
+                    }
                 }
-
-                //Adding to queue again if needed to load remaining pagination pages
-                long itemsFound = callType.equals(CallType.ACTIVE) ? result.getActiveItemsFound() : result.getCompleteItemsFound();
-                long itemsTotal = callType.equals(CallType.ACTIVE) ? result.getActiveItemsTotal() : result.getCompleteItemsTotal();
-                if (itemsFound < itemsTotal && itemsFound < itemsLimit) {
-                    unprocessed.add(result.getQuery());
-                    result.setStatus(Result.Status.LOADING);
-                } else if (callType.equals(CallType.COMPLETED)) {
-                    result.setStatus(Result.Status.COMPLETED);
-                    log(String.format("%-30s%s", "Query: " + result.getQuery(), " - all items found: " + result.getItems().size()));
-                }
-
-                checkIsComplete();
+                notifyResult(state); //Before the run may be finished by sendNewRequests
+                threads.decrementAndGet();
                 sendNewRequests();
-                resultsLoadingListener.onResultReceived(result);
             }
 
             @Override
-            public synchronized void onFailure(@NotNull Call call, @NotNull IOException e) {
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
                 if (!isRunning) return;
-                threads--;
-                String query = call.request().url().queryParameter("keywords");
-                Result result = new Result(query);
-                result.setStatus(Result.Status.ERROR);
-                results.putIfAbsent(result.getQuery(), result);
-                log(String.format("%-30s%s", "Query: " + result.getQuery(),
-                        " - page " + call.request().url().queryParameter("paginationInput.pageNumber") + ": loading error!"));
-                checkIsComplete();
+                onDropped();
+                PageRequest page = call.request().tag(PageRequest.class);
+                QueryState state = states.get(page.getQuery());
+                results.putIfAbsent(state.getQuery(), state.getResult());
+                onPageFailed(page);
+                notifyResult(state);
+                threads.decrementAndGet();
                 sendNewRequests();
-                resultsLoadingListener.onResultReceived(result);
             }
         };
     }
 
-    private void checkIsComplete() {
-        if (threads == 0 && unprocessed.isEmpty())
-            if (callType.equals(CallType.ACTIVE)) {
-                log("Active items loading is finished. Starting loading of complete items");
-                callType = CallType.COMPLETED;
-                unprocessed.addAll(results.keySet());
-            } else {
-                onFinish();
+    //Parsing is done without locks. Returns null if the page has to be loaded again
+    //and a result with the error status if the page fails without retries (see isRejected)
+    Result readPage(PageRequest page, Response response) {
+        long parseStart = System.nanoTime();
+        Result pageResult = extractResult(response, page.getCallType());
+        metrics.call(page.getCallType().getName()).recordParseTime(System.nanoTime() - parseStart);
+        if (pageResult == null) return null;
+        if (isRejected(pageResult)) {
+            log(String.format("%-30s%s", "Query: " + page.getQuery(),
+                    " - " + page.getPageName() + ": request is rejected by the API"));
+            return pageResult;
+        }
+        metrics.addItems(pageResult.getItemsCount());
+        log(String.format("%-30s%s", "Query: " + page.getQuery(), " - " + page.getPageName() + " loaded"));
+        circuitBreaker.onSuccess();
+        if (checkpoint != null) checkpoint.writePage(page, pageResult);
+        return pageResult;
+    }
+
+    static boolean isRejected(Result pageResult) {
+        return pageResult.getStatus() == Result.Status.ERROR;
+    }
+
+    //Request failed without response
+    void onDropped() {
+        concurrencyLimiter.onDropped();
+    }
+
+    private void applyPage(QueryState state, PageRequest page, Result pageResult) {
+        //Once the first page reports totalEntries, all remaining pages are queued at once to be loaded in parallel
+        unprocessed.addAll(mergePage(state, page, pageResult));
+        updatePhase(state);
+    }
+
+    //Must be called under the lock of the state. Returns pages to be loaded after this one: the first page of a band
+    //plans the remaining pages of the band or first pages of its sub-bands
+    List<PageRequest> mergePage(QueryState state, PageRequest page, Result pageResult) {
+        Result result = state.getResult();
+        List<PageRequest> nextPages = Collections.emptyList();
+        if (page.getPage() == 1) {
+            //Totals and search URL are of the whole query, not of a price band
+            if (page.getBand().isAll()) {
+                if (page.getCallType().equals(CallType.ACTIVE)) {
+                    result.setActiveItemsTotal(pageResult.getActiveItemsTotal());
+                    result.setSearchUrl(pageResult.getSearchUrl());
+                    result.setIsSuccess(pageResult.getIsSuccess());
+                } else {
+                    result.setCompleteItemsTotal(pageResult.getCompleteItemsTotal());
+                }
             }
+            if (!state.hasPrevious()) nextPages = planPages(state, page, pageResult);
+        }
+        //Query without a stored result is loaded in parallel as in the full mode
+        if (state.hasPrevious()) nextPages = planNextPage(state, page, pageResult);
+        state.addPage(page.getBand(), page.getPage(), pageResult.getItems());
+        return nextPages;
     }
 
-    private void onFinish() {
+    //Delta mode of a stored query: pages are loaded one by one, newest items first, until a page has an item of the previous run
+    private List<PageRequest> planNextPage(QueryState state, PageRequest page, Result pageResult) {
+        Result result = state.getResult();
+        long itemsTotal = state.getPhase().equals(CallType.ACTIVE) ? result.getActiveItemsTotal() : result.getCompleteItemsTotal();
+        int pagesCount = (int) Math.min((Math.min(itemsTotal, itemsLimit) + getItemsPerPage() - 1) / getItemsPerPage(), MAX_PAGE_NUMBER);
+        boolean isKnownReached = state.isKnownReached(pageResult.getItems());
+        if (isKnownReached || page.getPage() >= pagesCount) {
+            if (isKnownReached) log(String.format("%-30s%s", "Query: " + state.getQuery(), " - "
+                    + page.getPageName() + " reaches items of the previous run"));
+            state.setPagesCount(page.getBand(), page.getPage());
+            return Collections.emptyList();
+        }
+        state.setPagesCount(page.getBand(), page.getPage() + 1);
+        return Collections.singletonList(new PageRequest(state.getQuery(), state.getPhase(), page.getPage() + 1));
+    }
+
+    //Must be called under the lock of the state
+    void failPage(QueryState state, PageRequest page) {
+        state.getResult().setStatus(Result.Status.ERROR);
+        state.addFailedPage(page.getBand(), page.getPage());
+    }
+
+    //Pages saved in the checkpoint are applied as if they were just loaded, only missing pages are left in the queue.
+    //Pages of a phase the query hasn't reached (because some page before failed) are loaded again
+    private void restore() throws IOException {
+        PageRequest firstPage;
+        while ((firstPage = pullQuery()) != null) unprocessed.add(firstPage);
+        List<QueryState> restoredStates = new ArrayList<>(states.values()); //Completed ones may be dropped by the replay
+        Set<String> restored = new HashSet<>();
+        checkpoint.replay(record -> {
+            PageRequest page = record.toPageRequest();
+            QueryState state = states.get(page.getQuery());
+            if (state == null || !state.getPhase().equals(page.getCallType()) || !state.hasBand(page.getBand())) return;
+            results.putIfAbsent(page.getQuery(), state.getResult());
+            applyPage(state, page, record.toResult());
+            restored.add(page.getKey());
+        });
+        unprocessed.removeIf(page -> restored.contains(page.getKey()));
+        log("Restored " + restored.size() + " pages from checkpoint " + checkpoint.getFile());
+        for (QueryState state : restoredStates) {
+            if (results.get(state.getQuery()) == state.getResult()) notifyResult(state);
+            else notifyCompleted(state);
+        }
+    }
+
+    //Failed page is retried after a backoff delay. Query gets the error status only when all attempts are used
+    private void onPageFailed(PageRequest page) {
+        long delay = getRetryDelay(page);
+        if (delay >= 0) {
+            retriesScheduled.incrementAndGet();
+            scheduler.schedule(() -> {
+                retries.add(page.nextAttempt());
+                retriesScheduled.decrementAndGet();
+                sendNewRequests();
+            }, delay, TimeUnit.MILLISECONDS);
+            return;
+        }
+        QueryState state = states.get(page.getQuery());
+        synchronized (state) {
+            failPage(state, page);
+            updatePhase(state);
+        }
+    }
+
+    //Returns delay before the next attempt of the failed page or -1 if all attempts are used
+    long getRetryDelay(PageRequest page) {
+        if (circuitBreaker.onFailure())
+            log("Too many loading errors. Requests are paused for " + circuitBreaker.getPauseMillis() / 1000 + " s");
+        if (!retryPolicy.canRetry(page.getAttempt())) {
+            log(String.format("%-30s%s", "Query: " + page.getQuery(),
+                    " - " + page.getPageName() + ": loading error!"));
+            return -1;
+        }
+        long delay = retryPolicy.getDelay(page.getAttempt());
+        metrics.call(page.getCallType().getName()).onRetry();
+        log(String.format("%-30s%s", "Query: " + page.getQuery(),
+                " - " + page.getPageName() + ": loading error! Retry in " + delay + " ms"));
+        return delay;
+    }
+
+    //Band with more wanted items than the partition threshold is split at price quantiles of its first page,
+    //so sub-bands have about the same size. Sub-bands share the items wanted from the band, unless all its items are wanted
+    private List<PageRequest> planPages(QueryState state, PageRequest firstPage, Result pageResult) {
+        PriceBand band = firstPage.getBand();
+        long itemsTotal = state.getPhase().equals(CallType.ACTIVE) ? pageResult.getActiveItemsTotal() : pageResult.getCompleteItemsTotal();
+        int bandItemsWanted = state.getItemsWanted(band);
+        long itemsWanted = Math.min(itemsTotal, bandItemsWanted);
+        if (partitionThreshold > 0 && deltaStore == null && itemsWanted > partitionThreshold) {
+            int parts = (int) Math.min((itemsWanted + partitionThreshold - 1) / partitionThreshold, MAX_BANDS_PER_SPLIT);
+            List<PriceBand> subBands = band.split(pageResult.getItems(), parts);
+            if (!subBands.isEmpty()) {
+                int subBandItemsWanted = itemsWanted < itemsTotal
+                        ? (int) ((itemsWanted + subBands.size() - 1) / subBands.size())
+                        : bandItemsWanted;
+                state.splitBand(band, subBands, subBandItemsWanted);
+                log(String.format("%-30s%s", "Query: " + state.getQuery(), " - " + itemsTotal + " items"
+                        + (band.isAll() ? "" : " of " + band) + ", loading by price bands: " + subBands));
+                return subBands.stream()
+                        .map(subBand -> new PageRequest(state.getQuery(), state.getPhase(), subBand, 1))
+                        .collect(Collectors.toList());
+            }
+        }
+        int pagesCount = (int) ((itemsWanted + getItemsPerPage() - 1) / getItemsPerPage());
+        if (pagesCount > MAX_PAGE_NUMBER) {
+            log(String.format("%-30s%s", state.getQuery(), (band.isAll() ? "" : " " + band)
+                    + " - only items from the first " + MAX_PAGE_NUMBER + " pages will be loaded"));
+            pagesCount = MAX_PAGE_NUMBER;
+        }
+        state.setPagesCount(band, Math.max(pagesCount, 1));
+        List<PageRequest> nextPages = new ArrayList<>();
+        for (int nextPage = 2; nextPage <= pagesCount; nextPage++)
+            nextPages.add(new PageRequest(state.getQuery(), state.getPhase(), band, nextPage));
+        return nextPages;
+    }
+
+    private int getItemsPerPage() {
+        return Math.min(itemsLimit, MAX_ITEMS_PER_PAGE);
+    }
+
+    //Each query moves to complete items loading as soon as its own active items are loaded, without waiting for others
+    private void updatePhase(QueryState state) {
+        Result result = state.getResult();
+        if (state.isPhaseComplete() && state.getPhase().equals(CallType.ACTIVE)) {
+            log(String.format("%-30s%s", "Query: " + result.getQuery(), " - active items loaded. Starting loading of complete items"));
+            state.startPhase(CallType.COMPLETED);
+            unprocessed.addFirst(new PageRequest(result.getQuery(), CallType.COMPLETED, 1)); //Query close to completion goes first
+        }
+        if (!state.isPhaseComplete()) {
+            if (result.getStatus() != Result.Status.ERROR) result.setStatus(Result.Status.LOADING);
+        } else {
+            completeQuery(state);
+        }
+    }
+
+    //Must be called under the lock of the state. Listener is notified later by notifyCompleted, out of the lock
+    void completeQuery(QueryState state) {
+        Result result = state.getResult();
+        if (result.getStatus() != Result.Status.ERROR) result.setStatus(Result.Status.COMPLETED);
+        state.setCompleted();
+        if (deltaStore != null) storeResult(state);
+        log(String.format("%-30s%s", "Query: " + result.getQuery(), " - all items found: " + result.getItemsCount()
+                + (state.getDuplicates() > 0 ? ", repeated items dropped: " + state.getDuplicates() : "")));
+        List<Result> aliases = state.updateAliases();
+        if (resultSink != null) resultSink.onCompleted(result); //Items are written once, for the loaded query
+        if (!retainResults) {
+            states.remove(result.getQuery());
+            results.remove(result.getQuery());
+            for (Result alias : aliases) results.remove(alias.getQuery());
+            startedQueries.remove(getQueryKey(result.getQuery()), result.getQuery());
+        }
+    }
+
+    //New items are merged with the stored ones and the result is stored for the next run. Result with errors may miss
+    //new items, which the next run wouldn't load as it stops at older ones, so the previous result is kept instead
+    private void storeResult(QueryState state) {
+        Result result = state.getResult();
+        state.mergePrevious();
+        if (result.getStatus() == Result.Status.ERROR) {
+            log(String.format("%-30s%s", "Query: " + result.getQuery(), " - loaded with errors, stored result is not updated"));
+            return;
+        }
+        try {
+            deltaStore.write(result, condition, categoryId);
+        } catch (IOException e) {
+            log("Query: " + result.getQuery() + " - unable to store result");
+            e.printStackTrace();
+        }
+    }
+
+    Metrics getMetrics() {
+        return metrics;
+    }
+
+    boolean isSourceDrained() {
+        return isSourceDrained;
+    }
+
+    QueryState getState(String query) {
+        return states.get(query);
+    }
+
+    //Query is shown in results since its first loaded page. Results of equivalent queries are updated along with it
+    void notifyResult(QueryState state) {
+        Result result = state.getResult();
+        List<Result> aliases;
+        boolean isDropped;
+        synchronized (state) {
+            aliases = state.updateAliases();
+            isDropped = state.isCompleted() && !retainResults;
+            if (resultsLoadingListener.needsSnapshots()) {
+                result = result.snapshot(false);
+                aliases = snapshots(aliases, false);
+            }
+        }
+        if (!isDropped) results.putIfAbsent(state.getQuery(), state.getResult());
+        resultsLoadingListener.onResultReceived(result);
+        for (Result alias : aliases) resultsLoadingListener.onResultReceived(alias);
+        notifyCompleted(state);
+    }
+
+    //Completed query is passed to the listener out of the lock of the state, so a slow listener doesn't hold loading
+    void notifyCompleted(QueryState state) {
+        Result result = state.getResult();
+        List<Result> aliases;
+        synchronized (state) {
+            if (!state.takeCompletion()) return;
+            aliases = state.updateAliases();
+            if (resultsLoadingListener.needsSnapshots()) {
+                result = result.snapshot(true);
+                aliases = snapshots(aliases, true);
+            }
+        }
+        resultsLoadingListener.onResultCompleted(result);
+        for (Result alias : aliases) resultsLoadingListener.onResultCompleted(alias);
+    }
+
+    private static List<Result> snapshots(List<Result> results, boolean withItems) {
+        List<Result> snapshots = new ArrayList<>(results.size());
+        for (Result result : results) snapshots.add(result.snapshot(withItems));
+        return snapshots;
+    }
+
+    //In-flight counter is read first: every finished request has already queued its next pages and retries
+    private void checkIsComplete() {
+        if (threads.get() == 0 && retriesScheduled.get() == 0 && !hasQueuedPages()) onFinish();
+    }
+
+    void onFinish() {
         isRunning = false;
-        client.connectionPool().evictAll();
+        if (!isFinished.compareAndSet(false, true)) return;
+        scheduler.shutdownNow();
+        if (checkpoint != null) checkpoint.close();
+        if (diskCache != null)
+            log("Response cache: " + diskCache.getHits() + " hits, " + diskCache.getMisses() + " misses");
+        if (itemOverlaps != null && retainResults)
+            log("Unique items found: " + itemOverlaps.getUniqueItems() + ", found by several queries: " + itemOverlaps.getSharedItems());
+        HttpTransport.shared().getHostStats().forEach((host, stats) -> log("Host " + host + ": " + stats));
+        metrics.getCalls().forEach((callType, callMetrics) -> log(callType + ": " + callMetrics));
         resultsLoadingListener.onAllResultsReceived();
     }
 
-    //Extracting Result object from JSON response body
-    private Result extractResult(Response response) {
+    //Extracting Result object from JSON response body. Returns null if the body can't be read or processed
+    //or the API reports a transient error, and a result with the error status if the API rejects the request
+    Result extractResult(Response response, CallType callType) {
         String query = response.request().url().queryParameter("keywords");
         Result result = new Result(query);
-        try {
-            String jsonData = response.body().string();
-            JsonObject root = new Gson().fromJson(jsonData, JsonObject.class);
-            //Status
-            boolean isSuccess = root.getAsJsonArray(callType.getRootName())
-                    .get(0).getAsJsonObject()
-                    .get("ack").getAsString()
-                    .equals("Success");
-            if (!isSuccess) {
-                String errorMessage = root.getAsJsonArray(callType.getRootName())
-                        .get(0).getAsJsonObject()
-                        .get("errorMessage").getAsJsonArray()
-                        .get(0).getAsJsonObject()
-                        .get("error").getAsJsonArray()
-                        .get(0).getAsJsonObject()
-                        .get("message").getAsJsonArray()
-                        .get(0).getAsString();
-                log("Query: " + query + " - error: " + errorMessage);
-                return result;
+        try (ResponseBody body = response.body()) {
+            ResultParser parser = new ResultParser(callType);
+            if (!response.isSuccessful()) {
+                try {
+                    parser.parse(body.charStream());
+                } catch (Exception e) {
+                    //Error page isn't JSON, the status tells whether the error is transient
+                }
+                return onApiError(response, callType, parser);
             }
+            parser.parse(body.charStream());
+            if (!parser.isSuccess()) return onApiError(response, callType, parser);
+            if (parser.isWarning()) log("Query: " + query + " - warning: " + parser.getErrorMessage());
+            if (!DiskCache.isCacheHit(response))
+                concurrencyLimiter.onSuccess(response.receivedResponseAtMillis() - response.sentRequestAtMillis());
             //Total entries
-            int totalItems = root.getAsJsonArray(callType.getRootName())
-                    .get(0).getAsJsonObject()
-                    .get("paginationOutput").getAsJsonArray()
-                    .get(0).getAsJsonObject()
-                    .get("totalEntries").getAsJsonArray()
-                    .get(0).getAsInt();
+            if (parser.getTotalEntries() == null) throw new IllegalStateException("No paginationOutput in response");
+            int totalItems = parser.getTotalEntries();
             if (callType.equals(CallType.COMPLETED)) result.setCompleteItemsTotal(totalItems);
             else result.setActiveItemsTotal(totalItems);
             //Items
-            JsonObject searchResult = root.getAsJsonArray(callType.getRootName())
-                    .get(0).getAsJsonObject()
-                    .get("searchResult").getAsJsonArray()
-                    .get(0).getAsJsonObject();
-            if (!searchResult.has("item")) return result; //No items found
-            JsonArray jsonItems = searchResult.get("item").getAsJsonArray();
-            for (JsonElement jsonItem : jsonItems) {
-                String itemId = jsonItem.getAsJsonObject().get("itemId").getAsString();
-
-                double price = jsonItem.getAsJsonObject()
-                        .get("sellingStatus").getAsJsonArray()
-                        .get(0).getAsJsonObject()
-                        .get("currentPrice").getAsJsonArray()
-                        .get(0).getAsJsonObject()
-                        .get("__value__").getAsDouble();
-                String sellingStatus = jsonItem.getAsJsonObject()
-                        .get("sellingStatus").getAsJsonArray()
-                        .get(0).getAsJsonObject()
-                        .get("sellingState").getAsJsonArray()
-                        .get(0).getAsString();
-                String itemUrl = jsonItem.getAsJsonObject()
-                        .get("viewItemURL").getAsJsonArray()
-                        .get(0).getAsString();
-                Item item = new Item(itemId, price, sellingStatus, itemUrl);
+            if (!parser.hasItems()) return result; //No items found
+            if (parser.getSkippedItems() > 0)
+                log("Query: " + query + " - incomplete items skipped: " + parser.getSkippedItems());
+            for (Item item : parser.getItems()) {
                 log("Item: " + item.toString());
-
                 result.addItem(item);
             }
             //Search URL
             if (callType.equals(CallType.ACTIVE)) {
-                String searchUrl = root.getAsJsonArray(callType.getRootName())
-                        .get(0).getAsJsonObject()
-                        .get("itemSearchURL").getAsJsonArray()
-                        .get(0).getAsString();
-                result.setSearchUrl(searchUrl);
+                if (parser.getSearchUrl() == null) throw new IllegalStateException("No itemSearchURL in response");
+                result.setSearchUrl(parser.getSearchUrl());
             }
 
             result.setIsSuccess(true);
         } catch (IOException | NullPointerException e) {
             log("Query: " + query + " - unable to get response body");
+            metrics.call(callType.getName()).onError();
+            concurrencyLimiter.onDropped();
+            if (diskCache != null) diskCache.invalidate(response.request().url());
             e.printStackTrace();
+            return null;
         } catch (Exception e) {
             log("Query: " + query + " - unable to process result");
+            metrics.call(callType.getName()).onError();
+            concurrencyLimiter.onDropped();
+            if (diskCache != null) diskCache.invalidate(response.request().url());
             e.printStackTrace();
+            return null;
+        }
+        return result;
+    }
+
+    //Throttling and server errors are transient: the page is loaded again, so it is neither checkpointed nor merged.
+    //Other errors (bad keywords or category, failed authentication) would repeat, so the page fails at once
+    //without cutting the concurrency or opening the circuit breaker for the other queries
+    private Result onApiError(Response response, CallType callType, ResultParser parser) {
+        String query = response.request().url().queryParameter("keywords");
+        log("Query: " + query + " - error: HTTP " + response.code()
+                + (parser.getErrorMessage() != null ? ", " + parser.getErrorMessage() : ""));
+        metrics.call(callType.getName()).onError();
+        if (diskCache != null) diskCache.invalidate(response.request().url());
+        if (isTransientError(response.code(), parser.getErrorId())) {
+            concurrencyLimiter.onDropped();
+            return null;
         }
+        Result result = new Result(query);
+        result.setStatus(Result.Status.ERROR);
         return result;
     }
 
+    //Error id of the API decides, as some permanent errors come with HTTP 500
+    static boolean isTransientError(int httpCode, String errorId) {
+        if (errorId != null) return RATE_LIMIT_ERRORS.contains(errorId);
+        return httpCode >= 500 || httpCode == 429;
+    }
+
     //Preparing URL with get parameters
     private void prepareUrl() {
-        HttpUrl httpUrl = HttpUrl.parse(BASE_URL);
+        HttpUrl httpUrl = HttpUrl.parse(Endpoints.getFindingUrl());
         if (httpUrl == null) {
             log("Unable to detect base url");
             return;
@@ -282,24 +815,38 @@ public class ItemsSeeker {
                     .addQueryParameter("itemFilter(0).value(6)", "6000") //Acceptable
                     .addQueryParameter("itemFilter(0).value(7)", "7000"); //For parts or not working
         }
+        priceFilterIndex = condition.equals(Condition.ALL) ? 0 : 1;
         //Category filter
         if (categoryId != null) urlBuilder.addQueryParameter("categoryId", categoryId);
         preparedUrl = urlBuilder.build();
     }
 
-    private void log(String message) {
+    void log(String message) {
         if (logger != null) logger.log(message);
     }
 
     public void setLogger(Logger logger) {
         this.logger = logger;
+        concurrencyLimiter.setLogger(logger);
     }
 
     public enum Condition {
         NEW, USED, ALL
     }
 
-    private enum CallType {
+    //Order of queued pages of different queries, see setScheduling()
+    public enum Scheduling {
+        FIFO, //Pages are sent in the order they are planned, next query is started when all pages of started ones are sent
+        SHORTEST_FIRST, //Query with the fewest pages left goes first, so results are completed as early as possible
+        ROUND_ROBIN //Started queries take turns, so a query with many pages doesn't hold back the others
+    }
+
+    public enum Engine {
+        CALLBACKS, //OkHttp async calls
+        VIRTUAL_THREADS //Blocking calls on virtual threads, needs Java 21
+    }
+
+    enum CallType {
         ACTIVE("findItemsAdvanced", "findItemsAdvancedResponse"),
         COMPLETED("findCompletedItems", "findCompletedItemsResponse");
 
@@ -320,45 +867,203 @@ public class ItemsSeeker {
         }
     }
 
+    //Methods are called from OkHttp threads, results of different queries may come at the same time
     public interface ResultsLoadingListener {
         void onResultReceived(Result result);
 
+        //Called once per query, when both active and complete items are loaded
+        default void onResultCompleted(Result result) {}
+
+        //If true, listener gets copies which aren't changed by further loading: statistics only in onResultReceived,
+        //with items in onResultCompleted. Otherwise results are passed as they are and keep changing
+        default boolean needsSnapshots() {
+            return false;
+        }
+
         void onAllResultsReceived();
     }
 
+    OkHttpClient getClient() {
+        return client;
+    }
+
     public int getMaxThreads() {
-        return maxThreads;
+        return concurrencyLimiter.getMaxLimit();
     }
 
+    //Upper bound of the adaptive concurrency limit
     public void setMaxThreads(int maxThreads) {
-        this.maxThreads = maxThreads;
+        concurrencyLimiter.setBounds(Math.min(concurrencyLimiter.getMinLimit(), maxThreads), maxThreads);
+    }
+
+    //Current number of requests allowed to be in flight
+    public int getConcurrencyLimit() {
+        return concurrencyLimiter.getLimit();
     }
 
     public int getItemsLimit() {
         return itemsLimit;
     }
 
+    //Search gives up to 10 000 items, more of them are found only by price bands (see setPartitionThreshold)
     public void setItemsLimit(int itemsLimit) {
-        if (itemsLimit > MAX_ITEMS_PER_PAGE * MAX_PAGE_NUMBER) this.itemsLimit = MAX_ITEMS_PER_PAGE * MAX_PAGE_NUMBER;
-        else this.itemsLimit = itemsLimit;
+        this.itemsLimit = itemsLimit;
+    }
+
+    public int getPartitionThreshold() {
+        return partitionThreshold;
+    }
+
+    //Query with more wanted items than the threshold is loaded by price bands in parallel, every band is split again
+    //while it is above the threshold. 0 disables partitioning. Threshold up to 10 000 lets queries go beyond 100 pages
+    public void setPartitionThreshold(int partitionThreshold) {
+        this.partitionThreshold = partitionThreshold;
     }
 
     public long getTimeout() {
         return timeout;
     }
 
+    public Checkpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    //Every loaded page is appended to the checkpoint, so the run can be continued with resume()
+    public void setCheckpoint(Checkpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public DiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    //Disk cache of Finding API pages, null to always load pages from the network
+    public void setDiskCache(DiskCache diskCache) {
+        this.diskCache = diskCache;
+    }
+
+    public DeltaStore getDeltaStore() {
+        return deltaStore;
+    }
+
+    //Delta mode: pages are requested newest first and loading of every query stops at the first page with an item
+    //stored by the previous run. New items are merged with the stored ones and the store is updated.
+    //Result sink gets only new items. Null loads all items of every query
+    public void setDeltaStore(DeltaStore deltaStore) {
+        this.deltaStore = deltaStore;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
     public void setTimeout(long timeout) {
         this.timeout = timeout;
     }
 
     public List<Result> getResults() {
-        return new ArrayList<>(results.values());
+        synchronized (results) {
+            return new ArrayList<>(results.values());
+        }
+    }
+
+    public ItemOverlaps getItemOverlaps() {
+        return itemOverlaps;
+    }
+
+    //Run-wide index of items counting overlaps of queries, used only when results are retained. Null (default) disables it,
+    //repeated items are still dropped within every query
+    public void setItemOverlaps(ItemOverlaps itemOverlaps) {
+        this.itemOverlaps = itemOverlaps;
+    }
+
+    public DispatchGate getDispatchGate() {
+        return dispatchGate;
+    }
+
+    //While the gate is closed new requests are not sent
+    public void setDispatchGate(DispatchGate dispatchGate) {
+        this.dispatchGate = dispatchGate;
+    }
+
+    public ResultSink getResultSink() {
+        return resultSink;
+    }
+
+    //Receives items of every page as they are merged into results
+    public void setResultSink(ResultSink resultSink) {
+        this.resultSink = resultSink;
+    }
+
+    public Scheduling getScheduling() {
+        return scheduling;
+    }
+
+    //Supported by the callbacks engine only, the virtual threads engine loads every query on its own thread
+    public void setScheduling(Scheduling scheduling) {
+        this.scheduling = scheduling;
+    }
+
+    public int getQueryPriority(String query) {
+        return queryPriorities.getOrDefault(query, 0);
+    }
+
+    //Queries with higher priority are started first and their pages are sent before pages of other queries,
+    //whatever the scheduling. Default priority is 0. New priority of a started query applies when it has no queued pages
+    public void setQueryPriority(String query, int priority) {
+        queryPriorities.put(query, priority);
+    }
+
+    public Result.ItemsStorage getItemsStorage() {
+        return itemsStorage;
+    }
+
+    //Result.ItemsStorage.COMPACT keeps items in primitive arrays,
+    //Result.ItemsStorage.NONE keeps only statistics of results, items are passed to the result sink only
+    public void setItemsStorage(Result.ItemsStorage itemsStorage) {
+        this.itemsStorage = itemsStorage;
+    }
+
+    public boolean isCoalesceQueries() {
+        return coalesceQueries;
+    }
+
+    //If true, queries which differ only in case, whitespace, punctuation or order of words are loaded once
+    //and every one of them gets the result. If false, only exactly equal queries are loaded once
+    public void setCoalesceQueries(boolean coalesceQueries) {
+        this.coalesceQueries = coalesceQueries;
+    }
+
+    public boolean isRetainResults() {
+        return retainResults;
+    }
+
+    //If false, results are dropped as soon as they are passed to onResultCompleted
+    public void setRetainResults(boolean retainResults) {
+        this.retainResults = retainResults;
     }
 
     public boolean isRunning() {
         return isRunning;
     }
 
+    //Rate limiter shared by all eBay API callers with this App ID
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
     public String getCategoryId() {
         return categoryId;
     }
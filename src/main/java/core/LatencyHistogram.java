@@ -0,0 +1,48 @@
+package core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//Lock-free histogram of durations (or any non-negative values). Values below 128 are exact, larger ones are kept
+//with 64 buckets per power of two, i.e. within 1.6% of the real value. Recording is a single atomic increment
+public class LatencyHistogram {
+
+    private static final int EXACT = 128;
+    private static final int SUB_BUCKETS = 64;
+    private static final int MAX_SHIFT = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(EXACT + MAX_SHIFT * SUB_BUCKETS);
+
+    public void record(long value) {
+        buckets.incrementAndGet(indexOf(Math.max(value, 0)));
+    }
+
+    private static int indexOf(long value) {
+        if (value < EXACT) return (int) value;
+        int shift = Math.min(63 - Long.numberOfLeadingZeros(value) - 6, MAX_SHIFT);
+        return EXACT + (shift - 1) * SUB_BUCKETS + (int) Math.min((value >> shift) - SUB_BUCKETS, SUB_BUCKETS - 1);
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < EXACT) return index;
+        int shift = (index - EXACT) / SUB_BUCKETS + 1;
+        long subBucket = (index - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) count += buckets.get(i);
+        return count;
+    }
+
+    //Returns upper bound of the bucket holding the given percentile, 0 if nothing was recorded
+    public long getPercentile(double percentile) {
+        long rank = Math.max((long) Math.ceil(getCount() * percentile / 100), 1);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return upperBoundOf(i);
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,104 @@
+package core;
+
+//Open addressing set of primitive longs with linear probing. Used for item ids, so millions of ids don't need boxed Longs
+class LongHashSet {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private boolean hasZero; //0 marks free slots, so it is kept apart
+    private int size;
+    private int resizeAt;
+
+    LongHashSet() {
+        this(16);
+    }
+
+    LongHashSet(int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    //Returns false if the key is already in the set
+    boolean add(long key) {
+        if (key == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) return false;
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        if (++size > resizeAt) rehash(keys.length * 2);
+        return true;
+    }
+
+    boolean contains(long key) {
+        if (key == 0) return hasZero;
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) return true;
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        allocate(capacity);
+        int mask = capacity - 1;
+        for (long key : oldKeys) {
+            if (key == 0) continue;
+            int slot = hash(key) & mask;
+            while (keys[slot] != 0) slot = (slot + 1) & mask;
+            keys[slot] = key;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSize(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize) capacity <<= 1;
+        return capacity;
+    }
+
+    //Item ids are mostly sequential, so bits are mixed before masking
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    //Numeric item ids are used as they are. Other ids are hashed with FNV-1a, the sign bit separates them from numeric ones
+    static long itemKey(String itemId) {
+        int length = itemId.length();
+        if (length > 0 && length <= 18) {
+            long id = 0;
+            int i = 0;
+            for (; i < length; i++) {
+                char c = itemId.charAt(i);
+                if (c < '0' || c > '9') break;
+                id = id * 10 + (c - '0');
+            }
+            if (i == length) return id;
+        }
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            h ^= itemId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h | Long.MIN_VALUE;
+    }
+}
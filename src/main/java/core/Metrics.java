@@ -0,0 +1,117 @@
+package core;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+//Runtime metrics of a component (ItemsSeeker, UpcConvertor, Category) shared by all its instances in the process.
+//Components and their call types are visible over JMX (e.g. in JConsole or VisualVM) in the "core" domain.
+//Recording is done with atomic counters only, so metrics are always on
+public class Metrics implements MetricsMXBean {
+
+    private static final Map<String, Metrics> components = new TreeMap<>();
+    private static final int RATE_WINDOW = 10; //seconds
+
+    private final String component;
+    private final Map<String, CallMetrics> calls = new ConcurrentHashMap<>();
+    private final LongAdder items = new LongAdder();
+    private final AtomicLongArray itemsBySecond = new AtomicLongArray(RATE_WINDOW);
+    private final AtomicLongArray seconds = new AtomicLongArray(RATE_WINDOW);
+    private volatile IntSupplier queueDepth = () -> 0;
+    private volatile IntSupplier inFlight = () -> 0;
+
+    public static synchronized Metrics of(String component) {
+        return components.computeIfAbsent(component, k -> {
+            Metrics metrics = new Metrics(k);
+            register(metrics, "core:type=Metrics,component=" + k);
+            return metrics;
+        });
+    }
+
+    public static synchronized Map<String, Metrics> getAll() {
+        return Collections.unmodifiableMap(new TreeMap<>(components));
+    }
+
+    private Metrics(String component) {
+        this.component = component;
+    }
+
+    public CallMetrics call(String callType) {
+        return calls.computeIfAbsent(callType, k -> {
+            CallMetrics metrics = new CallMetrics(k);
+            register(metrics, "core:type=Metrics,component=" + component + ",call=" + k);
+            return metrics;
+        });
+    }
+
+    //Gauges show the instance started last
+    void setGauges(IntSupplier queueDepth, IntSupplier inFlight) {
+        this.queueDepth = queueDepth;
+        this.inFlight = inFlight;
+    }
+
+    //Counts of the last seconds are kept in a ring. A count added while its slot is being reused may be lost
+    void addItems(int count) {
+        items.add(count);
+        long second = System.currentTimeMillis() / 1000;
+        int slot = (int) (second % RATE_WINDOW);
+        long slotSecond = seconds.get(slot);
+        if (slotSecond != second && seconds.compareAndSet(slot, slotSecond, second)) itemsBySecond.set(slot, 0);
+        itemsBySecond.addAndGet(slot, count);
+    }
+
+    private static void register(Object mbean, String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, new ObjectName(name));
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public String getComponent() {
+        return component;
+    }
+
+    public Map<String, CallMetrics> getCalls() {
+        return Collections.unmodifiableMap(new TreeMap<>(calls));
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return queueDepth.getAsInt();
+    }
+
+    @Override
+    public int getInFlight() {
+        return inFlight.getAsInt();
+    }
+
+    @Override
+    public long getItems() {
+        return items.sum();
+    }
+
+    //Average over the last full seconds of the window
+    @Override
+    public double getItemsPerSecond() {
+        long now = System.currentTimeMillis() / 1000;
+        long sum = 0;
+        for (int slot = 0; slot < RATE_WINDOW; slot++) {
+            long second = seconds.get(slot);
+            if (second < now && second > now - RATE_WINDOW) sum += itemsBySecond.get(slot);
+        }
+        return (double) sum / (RATE_WINDOW - 1);
+    }
+
+    @Override
+    public String[] getCallTypes() {
+        return getCalls().keySet().toArray(new String[0]);
+    }
+}
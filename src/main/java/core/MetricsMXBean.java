@@ -0,0 +1,15 @@
+package core;
+
+//Read-only JMX view of a component, registered as core:type=Metrics,component=<component>
+public interface MetricsMXBean {
+
+    int getQueueDepth();
+
+    int getInFlight();
+
+    long getItems();
+
+    double getItemsPerSecond();
+
+    String[] getCallTypes();
+}
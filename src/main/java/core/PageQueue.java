@@ -0,0 +1,201 @@
+package core;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+//Pages waiting to be sent, grouped by query. Pages of queries with higher priority go first, queries of the same
+//priority are ordered by the scheduling. Pages of one query keep their order. Methods are called from any thread
+abstract class PageQueue {
+
+    private final ToIntFunction<String> priorities;
+    private final Map<String, QueryPages> queries = new HashMap<>();
+    private final TreeSet<QueryPages> order = new TreeSet<>(this::compare);
+    private long firstSeq; //Pages added to the head get decreasing numbers, pages added to the tail - increasing
+    private long lastSeq;
+    private long polls;
+    private int size;
+
+    PageQueue(ToIntFunction<String> priorities) {
+        this.priorities = priorities;
+    }
+
+    static PageQueue create(ItemsSeeker.Scheduling scheduling, ToIntFunction<String> priorities) {
+        switch (scheduling) {
+            case FIFO:
+                return new Fifo(priorities);
+            case SHORTEST_FIRST:
+                return new ShortestFirst(priorities);
+            case ROUND_ROBIN:
+                return new RoundRobin(priorities);
+            default:
+                throw new IllegalArgumentException("Unknown scheduling: " + scheduling);
+        }
+    }
+
+    synchronized void add(PageRequest page) {
+        QueryPages query = take(page.getQuery());
+        query.pages.addLast(new Entry(page, ++lastSeq));
+        size++;
+        put(query);
+    }
+
+    synchronized void addAll(Collection<PageRequest> pages) {
+        for (PageRequest page : pages) add(page);
+    }
+
+    //Page goes before all pages of its query, e.g. a page which couldn't be sent yet
+    synchronized void addFirst(PageRequest page) {
+        QueryPages query = take(page.getQuery());
+        query.pages.addFirst(new Entry(page, --firstSeq));
+        size++;
+        put(query);
+    }
+
+    synchronized PageRequest poll() {
+        QueryPages query = order.pollFirst();
+        if (query == null) return null;
+        PageRequest page = query.pages.pollFirst().page;
+        size--;
+        query.lastPolled = ++polls;
+        if (query.pages.isEmpty()) queries.remove(query.name);
+        else order.add(query);
+        return page;
+    }
+
+    synchronized void removeIf(Predicate<PageRequest> filter) {
+        for (QueryPages query : new ArrayList<>(queries.values())) {
+            order.remove(query);
+            int before = query.pages.size();
+            query.pages.removeIf(entry -> filter.test(entry.page));
+            size -= before - query.pages.size();
+            put(query);
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    //Whether a new query should be started before the queued pages are sent. At most maxQueries queries
+    //are kept in the queue, so memory is held only by a bounded number of started queries
+    synchronized boolean prefersNewQuery(int maxQueries) {
+        return size == 0 || (queries.size() < maxQueries && prefersNewQuery(order.first()));
+    }
+
+    abstract boolean prefersNewQuery(QueryPages first);
+
+    //Order of queries of the same priority
+    abstract int compareQueries(QueryPages a, QueryPages b);
+
+    private int compare(QueryPages a, QueryPages b) {
+        if (a.priority != b.priority) return Integer.compare(b.priority, a.priority);
+        int result = compareQueries(a, b);
+        return result != 0 ? result : Long.compare(a.pages.peekFirst().seq, b.pages.peekFirst().seq);
+    }
+
+    //Query is taken out of the order before its pages are changed, as the order depends on them
+    private QueryPages take(String name) {
+        QueryPages query = queries.get(name);
+        if (query == null) {
+            query = new QueryPages(name, priorities.applyAsInt(name), polls);
+            queries.put(name, query);
+        } else {
+            order.remove(query);
+        }
+        return query;
+    }
+
+    private void put(QueryPages query) {
+        if (query.pages.isEmpty()) queries.remove(query.name);
+        else order.add(query);
+    }
+
+    static class QueryPages {
+        private final String name;
+        private final int priority;
+        private final Deque<Entry> pages = new ArrayDeque<>();
+        private long lastPolled; //Number of polls of the queue when the query was polled or queued
+
+        QueryPages(String name, int priority, long lastPolled) {
+            this.name = name;
+            this.priority = priority;
+            this.lastPolled = lastPolled;
+        }
+
+        //Pages left to be sent. Query in the active items phase has at least one page of complete items more
+        int getPagesLeft() {
+            return pages.size() + (pages.peekFirst().page.getCallType() == ItemsSeeker.CallType.ACTIVE ? 1 : 0);
+        }
+    }
+
+    private static class Entry {
+        private final PageRequest page;
+        private final long seq;
+
+        Entry(PageRequest page, long seq) {
+            this.page = page;
+            this.seq = seq;
+        }
+    }
+
+    //Pages are sent in the order they are queued, next query is started when all queued pages are sent
+    private static class Fifo extends PageQueue {
+
+        Fifo(ToIntFunction<String> priorities) {
+            super(priorities);
+        }
+
+        @Override
+        boolean prefersNewQuery(QueryPages first) {
+            return false;
+        }
+
+        @Override
+        int compareQueries(QueryPages a, QueryPages b) {
+            return 0;
+        }
+    }
+
+    //Query with the fewest pages left goes first, so the average time until a query is completed is the shortest.
+    //New query has at least two pages: the first pages of active and complete items
+    private static class ShortestFirst extends PageQueue {
+
+        ShortestFirst(ToIntFunction<String> priorities) {
+            super(priorities);
+        }
+
+        @Override
+        boolean prefersNewQuery(QueryPages first) {
+            return first.getPagesLeft() > 2;
+        }
+
+        @Override
+        int compareQueries(QueryPages a, QueryPages b) {
+            return Integer.compare(a.getPagesLeft(), b.getPagesLeft());
+        }
+    }
+
+    //Queries take turns, one page each, so a query with many pages doesn't hold back the others.
+    //New queries are started until the queue is full
+    private static class RoundRobin extends PageQueue {
+
+        RoundRobin(ToIntFunction<String> priorities) {
+            super(priorities);
+        }
+
+        @Override
+        boolean prefersNewQuery(QueryPages first) {
+            return true;
+        }
+
+        @Override
+        int compareQueries(QueryPages a, QueryPages b) {
+            return Long.compare(a.lastPolled, b.lastPolled);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package core;
+
+//Single unit of work: one pagination page of one query
+class PageRequest {
+
+    private final String query;
+    private final ItemsSeeker.CallType callType;
+    private final PriceBand band;
+    private final int page;
+    private final int attempt;
+
+    PageRequest(String query, ItemsSeeker.CallType callType, int page) {
+        this(query, callType, PriceBand.ALL, page);
+    }
+
+    PageRequest(String query, ItemsSeeker.CallType callType, PriceBand band, int page) {
+        this(query, callType, band, page, 1);
+    }
+
+    private PageRequest(String query, ItemsSeeker.CallType callType, PriceBand band, int page, int attempt) {
+        this.query = query;
+        this.callType = callType;
+        this.band = band;
+        this.page = page;
+        this.attempt = attempt;
+    }
+
+    PageRequest nextAttempt() {
+        return new PageRequest(query, callType, band, page, attempt + 1);
+    }
+
+    String getQuery() {
+        return query;
+    }
+
+    ItemsSeeker.CallType getCallType() {
+        return callType;
+    }
+
+    PriceBand getBand() {
+        return band;
+    }
+
+    int getPage() {
+        return page;
+    }
+
+    int getAttempt() {
+        return attempt;
+    }
+
+    //Identifies the page regardless of the attempt
+    String getKey() {
+        return callType.getName() + ":" + (band.isAll() ? "" : band.getKey() + ":") + page + ":" + query;
+    }
+
+    //Used in log messages: "page 3" or "page 3 of $10.00-$19.99"
+    String getPageName() {
+        return "page " + page + (band.isAll() ? "" : " of " + band);
+    }
+
+    @Override
+    public String toString() {
+        return query + " [" + callType.getName() + ", " + getPageName() + "]";
+    }
+}
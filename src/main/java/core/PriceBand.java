@@ -0,0 +1,102 @@
+package core;
+
+import core.entities.Item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+//Range of item prices in cents, both bounds included. Query with too many items is loaded by price bands:
+//every band is a separate search with MinPrice/MaxPrice item filters and its own 100 pages
+final class PriceBand {
+
+    private static final long UNBOUNDED = Long.MAX_VALUE;
+    static final PriceBand ALL = new PriceBand(0, UNBOUNDED);
+
+    private final long minCents;
+    private final long maxCents;
+
+    PriceBand(long minCents, long maxCents) {
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+    }
+
+    boolean isAll() {
+        return minCents == 0 && maxCents == UNBOUNDED;
+    }
+
+    boolean hasMinPrice() {
+        return minCents > 0;
+    }
+
+    boolean hasMaxPrice() {
+        return maxCents != UNBOUNDED;
+    }
+
+    String getMinPrice() {
+        return format(minCents);
+    }
+
+    String getMaxPrice() {
+        return format(maxCents);
+    }
+
+    //Cuts the band at quantiles of the sampled prices, so sub-bands get about the same number of items.
+    //Returns an empty list if the sample has less than two distinct prices
+    List<PriceBand> split(List<Item> sample, int parts) {
+        long[] prices = new long[sample.size()];
+        int count = 0;
+        for (Item item : sample) {
+            long cents = Math.round(item.getPrice() * 100);
+            if (cents >= minCents && cents <= maxCents) prices[count++] = cents;
+        }
+        if (count < 2) return Collections.emptyList();
+        Arrays.sort(prices, 0, count);
+        List<PriceBand> bands = new ArrayList<>(parts);
+        long from = minCents;
+        for (int part = 1; part < parts; part++) {
+            long cut = prices[part * count / parts];
+            if (cut <= from || cut <= prices[0]) continue; //Band below the lowest sampled price would be empty
+            bands.add(new PriceBand(from, cut - 1));
+            from = cut;
+        }
+        if (bands.isEmpty()) return Collections.emptyList();
+        bands.add(new PriceBand(from, maxCents));
+        return bands;
+    }
+
+    //Written to the checkpoint, see parse()
+    String getKey() {
+        return minCents + "-" + (hasMaxPrice() ? String.valueOf(maxCents) : "");
+    }
+
+    static PriceBand parse(String key) {
+        if (key == null) return ALL;
+        int dash = key.indexOf('-');
+        String max = key.substring(dash + 1);
+        return new PriceBand(Long.parseLong(key.substring(0, dash)), max.isEmpty() ? UNBOUNDED : Long.parseLong(max));
+    }
+
+    private static String format(long cents) {
+        return cents / 100 + "." + (cents % 100 < 10 ? "0" : "") + cents % 100;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PriceBand band = (PriceBand) o;
+        return minCents == band.minCents && maxCents == band.maxCents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minCents) * 31 + Long.hashCode(maxCents);
+    }
+
+    @Override
+    public String toString() {
+        return "$" + getMinPrice() + (hasMaxPrice() ? "-$" + getMaxPrice() : "+");
+    }
+}
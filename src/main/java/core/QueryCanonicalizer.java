@@ -0,0 +1,54 @@
+package core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+//Key of equivalent search queries. eBay ignores case, extra whitespace, punctuation around words and order of words,
+//so "Shimano Reel", "shimano  reel" and "reel, shimano" find the same items and are loaded once.
+//Queries with search operators (quotes, parentheses, exclusions, wildcards) keep their words and order
+final class QueryCanonicalizer {
+
+    private static final String EDGE_PUNCTUATION = ",.;:!?";
+
+    private QueryCanonicalizer() {}
+
+    static String canonicalize(String query) {
+        List<String> words = new ArrayList<>();
+        for (String word : query.toLowerCase(Locale.ROOT).split("[\\s\\u00A0]+")) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        if (hasOperators(words)) return String.join(" ", words);
+        List<String> tokens = new ArrayList<>(words.size());
+        for (String word : words) {
+            String token = strip(word);
+            if (hasLetterOrDigit(token)) tokens.add(token); //Standalone "-" or "&" is not a word
+        }
+        Collections.sort(tokens);
+        return String.join(" ", tokens);
+    }
+
+    private static boolean hasOperators(List<String> words) {
+        for (String word : words) {
+            if (word.indexOf('"') >= 0 || word.indexOf('(') >= 0 || word.indexOf(')') >= 0 || word.indexOf('*') >= 0) return true;
+            if (word.length() > 1 && word.charAt(0) == '-') return true;
+        }
+        return false;
+    }
+
+    private static String strip(String word) {
+        int from = 0;
+        int to = word.length();
+        while (from < to && EDGE_PUNCTUATION.indexOf(word.charAt(from)) >= 0) from++;
+        while (to > from && EDGE_PUNCTUATION.indexOf(word.charAt(to - 1)) >= 0) to--;
+        return word.substring(from, to);
+    }
+
+    private static boolean hasLetterOrDigit(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isLetterOrDigit(token.charAt(i))) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,202 @@
+package core;
+
+import core.entities.Item;
+import core.entities.Result;
+
+import java.util.*;
+
+//Pagination state of a single query. Pages may arrive in any order, they are merged into the Result by page number
+class QueryState {
+
+    private final Result result;
+    private final int itemsLimit;
+    private final ResultSink sink;
+    private final ItemOverlaps overlaps;
+    private final int overlapsIndex;
+    private final LongHashSet itemIds = new LongHashSet(); //Pages shift while listings start and end, so the same item may come twice
+    private int duplicates;
+    private ItemsSeeker.CallType phase = ItemsSeeker.CallType.ACTIVE;
+    private int pagesCount; //Pages of all price bands of the phase, known after first pages of the bands are loaded
+    private int pagesDone;
+    private int itemsMerged;
+    private Map<PriceBand, BandPages> bands = new HashMap<>();
+    private List<Result> aliases = Collections.emptyList(); //Results of equivalent queries, see QueryCanonicalizer
+    private boolean isCompleted;
+    private boolean isCompletionNotified;
+    private DeltaStore.Record previous; //Result of the previous run in the delta mode
+    private LongHashSet knownIds; //Items of the phase found by the previous run
+
+    QueryState(String query, int itemsLimit, Result.ItemsStorage itemsStorage, ResultSink sink, ItemOverlaps overlaps) {
+        this.result = new Result(query, itemsStorage);
+        this.itemsLimit = itemsLimit;
+        this.sink = sink;
+        this.overlaps = overlaps;
+        this.overlapsIndex = overlaps != null ? overlaps.getQueryIndex(query) : -1;
+        startPhase(ItemsSeeker.CallType.ACTIVE);
+    }
+
+    void startPhase(ItemsSeeker.CallType phase) {
+        this.phase = phase;
+        pagesCount = 1;
+        pagesDone = 0;
+        itemsMerged = 0;
+        bands.clear();
+        bands.put(PriceBand.ALL, new BandPages(itemsLimit));
+        knownIds = previous != null ? previous.getIds(phase == ItemsSeeker.CallType.COMPLETED) : null;
+    }
+
+    void setPrevious(DeltaStore.Record previous) {
+        this.previous = previous;
+        knownIds = previous != null ? previous.getIds(phase == ItemsSeeker.CallType.COMPLETED) : null;
+    }
+
+    boolean hasPrevious() {
+        return previous != null;
+    }
+
+    //Whether the page has an item found by the previous run. Pages are loaded newest first, so the next pages have none
+    boolean isKnownReached(List<Item> pageItems) {
+        if (knownIds == null) return false;
+        for (Item item : pageItems) {
+            if (knownIds.contains(LongHashSet.itemKey(item.getItemId()))) return true;
+        }
+        return false;
+    }
+
+    //Items of the previous run which are not found again are added after the new ones, up to the limit of each type.
+    //Active item which has ended since is found again among complete items, so it isn't added as active
+    void mergePrevious() {
+        if (previous == null) return;
+        long activeItems = result.getActiveItemsFound();
+        long completeItems = result.getCompleteItemsFound();
+        List<Item> items = new ArrayList<>();
+        for (Item item : previous.getItems()) {
+            if (itemIds.contains(LongHashSet.itemKey(item.getItemId()))) continue;
+            if (item.isComplete() ? completeItems++ >= itemsLimit : activeItems++ >= itemsLimit) continue;
+            items.add(item);
+        }
+        result.addItems(items);
+    }
+
+    //Stores page items and merges all pages of the band which are next in order.
+    //Repeated items (also the ones found in other bands) and items above the limit are dropped
+    void addPage(PriceBand band, int page, List<Item> items) {
+        pagesDone++;
+        BandPages pages = bands.get(band);
+        pages.loaded.put(page, items);
+        while (pages.loaded.containsKey(pages.nextPage)) {
+            List<Item> pageItems = newItems(pages.loaded.remove(pages.nextPage++), Math.max(itemsLimit - itemsMerged, 0));
+            result.addItems(pageItems);
+            itemsMerged += pageItems.size();
+            if (sink != null && !pageItems.isEmpty()) sink.onItems(result, pageItems);
+        }
+    }
+
+    private List<Item> newItems(List<Item> pageItems, int allowed) {
+        List<Item> newItems = new ArrayList<>(Math.min(pageItems.size(), allowed));
+        for (Item item : pageItems) {
+            if (newItems.size() == allowed) break;
+            long key = LongHashSet.itemKey(item.getItemId());
+            if (!itemIds.add(key)) {
+                duplicates++;
+                continue;
+            }
+            if (overlaps != null) overlaps.add(overlapsIndex, key);
+            newItems.add(item);
+        }
+        return newItems;
+    }
+
+    //Failed page doesn't hold back merging of the following pages
+    void addFailedPage(PriceBand band, int page) {
+        addPage(band, page, Collections.emptyList());
+    }
+
+    //Band is loaded by its sub-bands, each of them wants the given number of items. Items of the first page
+    //of the band are merged as well, sub-bands find them again and they are dropped as repeated
+    void splitBand(PriceBand band, List<PriceBand> subBands, int itemsWanted) {
+        for (PriceBand subBand : subBands) bands.put(subBand, new BandPages(itemsWanted));
+        pagesCount += subBands.size();
+    }
+
+    //Result of an equivalent query, a copy of this result
+    Result addAlias(String query) {
+        if (aliases.isEmpty()) aliases = new ArrayList<>();
+        Result alias = new Result(query, result.getItemsStorage());
+        alias.mirror(result);
+        aliases.add(alias);
+        return alias;
+    }
+
+    //Copies the result to the results of equivalent queries. Returned list may be read without the lock
+    List<Result> updateAliases() {
+        if (aliases.isEmpty()) return aliases;
+        for (Result alias : aliases) alias.mirror(result);
+        return new ArrayList<>(aliases);
+    }
+
+    boolean isCompleted() {
+        return isCompleted;
+    }
+
+    void setCompleted() {
+        isCompleted = true;
+    }
+
+    //Returns true once, for the first call after the query is completed
+    boolean takeCompletion() {
+        if (!isCompleted || isCompletionNotified) return false;
+        isCompletionNotified = true;
+        return true;
+    }
+
+    //Equivalent query added after this is notified of the completion by itself
+    boolean isCompletionNotified() {
+        return isCompletionNotified;
+    }
+
+    boolean isPhaseComplete() {
+        return pagesDone >= pagesCount;
+    }
+
+    Result getResult() {
+        return result;
+    }
+
+    String getQuery() {
+        return result.getQuery();
+    }
+
+    int getDuplicates() {
+        return duplicates;
+    }
+
+    ItemsSeeker.CallType getPhase() {
+        return phase;
+    }
+
+    boolean hasBand(PriceBand band) {
+        return bands.containsKey(band);
+    }
+
+    int getItemsWanted(PriceBand band) {
+        return bands.get(band).itemsWanted;
+    }
+
+    void setPagesCount(PriceBand band, int pagesCount) {
+        BandPages pages = bands.get(band);
+        this.pagesCount += pagesCount - pages.pagesCount;
+        pages.pagesCount = pagesCount;
+    }
+
+    private static class BandPages {
+        private final int itemsWanted;
+        private int pagesCount = 1;
+        private int nextPage = 1; //Next page to be merged into the result
+        private final Map<Integer, List<Item>> loaded = new HashMap<>();
+
+        BandPages(int itemsWanted) {
+            this.itemsWanted = itemsWanted;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package core;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+//Token bucket shared by all callers of the eBay APIs with the same App ID.
+//Smooths requests to permitsPerSecond and keeps track of the daily calls budget
+public class RateLimiter {
+
+    public static final long BUDGET_EXHAUSTED = -1;
+
+    private static final Map<String, RateLimiter> limiters = new HashMap<>();
+    private static final ZoneId QUOTA_ZONE = ZoneId.of("America/Los_Angeles"); //eBay call limits reset at midnight Pacific time
+
+    private double permitsPerSecond = 10;
+    private double burst = 10;
+    private long dailyBudget = 5000; //default Finding API limit: https://developer.ebay.com/support/api-call-limits
+
+    private double tokens = burst;
+    private long lastRefill = System.nanoTime();
+    private long usedToday;
+    private LocalDate day = LocalDate.now(QUOTA_ZONE);
+
+    public static synchronized RateLimiter forAppId(String appId) {
+        return limiters.computeIfAbsent(appId, k -> new RateLimiter());
+    }
+
+    private RateLimiter() {}
+
+    //Returns 0 if permit is acquired, time in millis to wait for the next token or BUDGET_EXHAUSTED
+    public synchronized long tryAcquire() {
+        refill();
+        if (usedToday >= dailyBudget) return BUDGET_EXHAUSTED;
+        if (tokens < 1) return (long) Math.ceil((1 - tokens) * 1000 / permitsPerSecond);
+        tokens--;
+        usedToday++;
+        return 0;
+    }
+
+    //Blocks until permit is acquired. Returns false if the daily budget is exhausted
+    public boolean acquire() throws InterruptedException {
+        long wait;
+        while ((wait = tryAcquire()) > 0) TimeUnit.MILLISECONDS.sleep(wait);
+        return wait == 0;
+    }
+
+    private void refill() {
+        LocalDate today = LocalDate.now(QUOTA_ZONE);
+        if (!today.equals(day)) {
+            day = today;
+            usedToday = 0;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerSecond / 1e9);
+        lastRefill = now;
+    }
+
+    //Calls left for today. Only calls made by this process are counted
+    public synchronized long getRemainingDailyBudget() {
+        refill();
+        return Math.max(dailyBudget - usedToday, 0);
+    }
+
+    public synchronized double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public synchronized void setPermitsPerSecond(double permitsPerSecond) {
+        refill();
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(permitsPerSecond, 1);
+    }
+
+    public synchronized long getDailyBudget() {
+        return dailyBudget;
+    }
+
+    public synchronized void setDailyBudget(long dailyBudget) {
+        this.dailyBudget = dailyBudget;
+    }
+}
@@ -0,0 +1,238 @@
+package core;
+
+import com.google.gson.stream.JsonReader;
+import core.entities.Item;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+//Streaming parser of Finding API JSON responses. Pulls out only the fields we need without building the whole tree
+class ResultParser {
+
+    private final ItemsSeeker.CallType callType;
+
+    private String ack;
+    private String errorMessage;
+    private String errorId;
+    private Integer totalEntries;
+    private String searchUrl;
+    private boolean hasItems;
+    private List<Item> items = new ArrayList<>();
+    private int skippedItems;
+
+    ResultParser(ItemsSeeker.CallType callType) {
+        this.callType = callType;
+    }
+
+    void parse(Reader in) throws IOException {
+        JsonReader reader = new JsonReader(in);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(callType.getRootName())) {
+                if (beginFirst(reader)) readResponse(reader);
+                endFirst(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readResponse(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "ack":
+                    ack = readFirstString(reader);
+                    break;
+                case "errorMessage":
+                    readErrorMessage(reader);
+                    break;
+                case "paginationOutput":
+                    readPagination(reader);
+                    break;
+                case "searchResult":
+                    readSearchResult(reader);
+                    break;
+                case "itemSearchURL":
+                    searchUrl = readFirstString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    //errorMessage[0].error[0].message[0] and errorMessage[0].error[0].errorId[0]
+    private void readErrorMessage(JsonReader reader) throws IOException {
+        if (beginFirst(reader)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("error")) {
+                    if (beginFirst(reader)) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            String name = reader.nextName();
+                            if (name.equals("message")) errorMessage = readFirstString(reader);
+                            else if (name.equals("errorId")) errorId = readFirstString(reader);
+                            else reader.skipValue();
+                        }
+                        reader.endObject();
+                    }
+                    endFirst(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        endFirst(reader);
+    }
+
+    //paginationOutput[0].totalEntries[0]
+    private void readPagination(JsonReader reader) throws IOException {
+        if (beginFirst(reader)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("totalEntries")) {
+                    if (beginFirst(reader)) totalEntries = reader.nextInt();
+                    endFirst(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        endFirst(reader);
+    }
+
+    //searchResult[0].item[]
+    private void readSearchResult(JsonReader reader) throws IOException {
+        if (beginFirst(reader)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("item")) {
+                    hasItems = true;
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        Item item = readItem(reader);
+                        if (item != null) items.add(item);
+                        else skippedItems++;
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        endFirst(reader);
+    }
+
+    //Returns null for an item without some of the fields, so the rest of the page is still used
+    private Item readItem(JsonReader reader) throws IOException {
+        String itemId = null;
+        String itemUrl = null;
+        Double price = null;
+        String sellingState = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "itemId":
+                    itemId = readFirstString(reader);
+                    break;
+                case "viewItemURL":
+                    itemUrl = readFirstString(reader);
+                    break;
+                case "sellingStatus":
+                    //sellingStatus[0].currentPrice[0].__value__ and sellingStatus[0].sellingState[0]
+                    if (beginFirst(reader)) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            String name = reader.nextName();
+                            if (name.equals("currentPrice")) {
+                                if (beginFirst(reader)) {
+                                    reader.beginObject();
+                                    while (reader.hasNext()) {
+                                        if (reader.nextName().equals("__value__")) price = reader.nextDouble();
+                                        else reader.skipValue();
+                                    }
+                                    reader.endObject();
+                                }
+                                endFirst(reader);
+                            } else if (name.equals("sellingState")) {
+                                sellingState = readFirstString(reader);
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    }
+                    endFirst(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (itemId == null || price == null || sellingState == null || itemUrl == null) return null;
+        return new Item(itemId, price, sellingState, itemUrl);
+    }
+
+    //Finding API wraps every value into an array: "ack":["Success"]. Only the first element is used
+    private static boolean beginFirst(JsonReader reader) throws IOException {
+        reader.beginArray();
+        return reader.hasNext();
+    }
+
+    private static void endFirst(JsonReader reader) throws IOException {
+        while (reader.hasNext()) reader.skipValue();
+        reader.endArray();
+    }
+
+    private static String readFirstString(JsonReader reader) throws IOException {
+        String value = beginFirst(reader) ? reader.nextString() : null;
+        endFirst(reader);
+        return value;
+    }
+
+    //Warning ack comes with a complete result
+    boolean isSuccess() {
+        return "Success".equals(ack) || isWarning();
+    }
+
+    boolean isWarning() {
+        return "Warning".equals(ack);
+    }
+
+    String getErrorMessage() {
+        return errorMessage;
+    }
+
+    String getErrorId() {
+        return errorId;
+    }
+
+    Integer getTotalEntries() {
+        return totalEntries;
+    }
+
+    String getSearchUrl() {
+        return searchUrl;
+    }
+
+    boolean hasItems() {
+        return hasItems;
+    }
+
+    List<Item> getItems() {
+        return items;
+    }
+
+    int getSkippedItems() {
+        return skippedItems;
+    }
+}
@@ -0,0 +1,16 @@
+package core;
+
+import core.entities.Item;
+import core.entities.Result;
+
+import java.util.List;
+
+//Receives items of every query as they are merged into the result, in pagination order.
+//Together with Result.ItemsStorage.NONE allows to process any amount of items without keeping them in memory
+public interface ResultSink {
+
+    void onItems(Result result, List<Item> items);
+
+    //Called once per query, when both active and complete items are loaded
+    default void onCompleted(Result result) {}
+}
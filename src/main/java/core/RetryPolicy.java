@@ -0,0 +1,38 @@
+package core;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+//Exponential backoff with full jitter: delay is random between 0 and min(maxDelay, baseDelay * 2^(attempt-1))
+public class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelay;
+    private final long maxDelay;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        if (maxAttempts < 1 || baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis) throw new IllegalArgumentException();
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelayMillis;
+        this.maxDelay = maxDelayMillis;
+    }
+
+    public static RetryPolicy defaultPolicy() {
+        return new RetryPolicy(4, 500, 30000);
+    }
+
+    //attempt - number of the attempt which has just failed, starting from 1
+    public boolean canRetry(int attempt) {
+        return attempt < maxAttempts;
+    }
+
+    public long getDelay(int attempt) {
+        //Shift is limited, so the ceiling can't overflow; zero base delay retries at once
+        int shift = Math.min(attempt - 1, Long.numberOfLeadingZeros(baseDelay) - 1);
+        long ceiling = Math.min(baseDelay << shift, maxDelay);
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+}
@@ -8,10 +8,14 @@ import okhttp3.*;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class UpcConvertor {
@@ -19,28 +23,57 @@ public class UpcConvertor {
     private Logger logger;
     private OkHttpClient client;
     private Callback callback;
-    private final String BASE_URL = "https://api.discogs.com/database/search";
+    private HttpUrl baseUrl;
+    private static final Gson gson = new Gson();
 
-    private int maxThreads = 5;
+    private ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter("Discogs API", 1, 5);
     private long timeout = 10000;
     private ConvertorListener convertorListener;
 
-    private int threads;
-    private boolean isRunning;
+    //Same model as in ItemsSeeker: responses are handled in parallel, requests are sent by one thread at a time
+    private final AtomicInteger threads = new AtomicInteger();
+    private volatile boolean isRunning;
+    private final AtomicInteger dispatchSignals = new AtomicInteger();
+    private final AtomicBoolean isFinished = new AtomicBoolean();
+    private ScheduledExecutorService scheduler;
+    private final AtomicBoolean isDispatchScheduled = new AtomicBoolean();
+    private RetryPolicy retryPolicy = RetryPolicy.defaultPolicy();
+    private CircuitBreaker circuitBreaker = CircuitBreaker.defaultBreaker();
+    private final AtomicInteger retriesScheduled = new AtomicInteger();
 
     private Deque<String> unprocessed = new ConcurrentLinkedDeque<>();
+    private Deque<String> retries = new ConcurrentLinkedDeque<>();
+    private Map<String, Integer> attempts = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> upcsByBarcode = new LinkedHashMap<>(); //Read-only after the constructor
     private final String TOKEN;
+    private final Metrics metrics = Metrics.of("UpcConvertor");
+    private final CallMetrics searchMetrics = metrics.call("search");
 
+    //UPCs which differ only in spaces and dashes are converted with one request, the release is passed for each of them
     public UpcConvertor(List<String> upcs, String token, ConvertorListener convertorListener) {
-        unprocessed.addAll(upcs);
+        for (String upc : upcs) upcsByBarcode.computeIfAbsent(toBarcode(upc), barcode -> new ArrayList<>()).add(upc);
+        unprocessed.addAll(upcsByBarcode.keySet());
         this.TOKEN = token;
         this.convertorListener = convertorListener;
         initCallbacks();
     }
 
     public void start() {
-        client = new OkHttpClient.Builder().callTimeout(timeout, TimeUnit.MILLISECONDS).build();
-        threads = 0;
+        HttpTransport transport = HttpTransport.shared();
+        transport.ensureConcurrency(concurrencyLimiter.getMaxLimit());
+        client = transport.newClient().callTimeout(timeout, TimeUnit.MILLISECONDS).build();
+        baseUrl = HttpUrl.parse(Endpoints.getDiscogsUrl());
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "UpcConvertor scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        threads.set(0);
+        dispatchSignals.set(0);
+        isFinished.set(false);
+        isDispatchScheduled.set(false);
+        retriesScheduled.set(0);
+        metrics.setGauges(() -> unprocessed.size() + retries.size(), threads::get);
         isRunning = true;
         sendNewRequests();
     }
@@ -50,66 +83,141 @@ public class UpcConvertor {
         onFinish();
     }
 
+    //Any thread may call it. If another thread is sending requests now, that thread makes one more round instead
     private void sendNewRequests() {
-        while (isRunning && threads < maxThreads && !unprocessed.isEmpty()) {
-            String upc = unprocessed.pop();
-            HttpUrl url = HttpUrl.parse(BASE_URL);
-            url = url.newBuilder()
+        if (dispatchSignals.getAndIncrement() != 0) return;
+        int signals = 1;
+        do {
+            dispatch();
+            checkIsComplete();
+            signals = dispatchSignals.addAndGet(-signals);
+        } while (signals != 0);
+    }
+
+    private void dispatch() {
+        while (isRunning && threads.get() < concurrencyLimiter.getLimit() && (!retries.isEmpty() || !unprocessed.isEmpty())) {
+            long pause = circuitBreaker.getRemainingPause();
+            if (pause > 0) {
+                scheduleDispatch(pause);
+                return;
+            }
+            String upc = !retries.isEmpty() ? retries.pop() : unprocessed.pop();
+            HttpUrl url = baseUrl.newBuilder()
                     .addQueryParameter("token", TOKEN)
                     .addQueryParameter("barcode", upc)
                     .build();
-            Request request = new Request.Builder().url(url).build();
-            threads++;
+            Request request = new Request.Builder()
+                    .url(url)
+                    .tag(CallMetrics.class, searchMetrics)
+                    .build();
+            threads.incrementAndGet();
             client.newCall(request).enqueue(callback);
         }
     }
 
+    private void scheduleDispatch(long delayMillis) {
+        if (!isDispatchScheduled.compareAndSet(false, true)) return;
+        scheduler.schedule(() -> {
+            isDispatchScheduled.set(false);
+            sendNewRequests();
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    //Failed UPC is queued again after a backoff delay. Returns false if all attempts are used
+    private boolean retry(String upc) {
+        if (circuitBreaker.onFailure())
+            log("Too many conversion errors. Requests are paused for " + circuitBreaker.getPauseMillis() / 1000 + " s");
+        int attempt = attempts.merge(upc, 1, Integer::sum);
+        if (!retryPolicy.canRetry(attempt)) return false;
+        long delay = retryPolicy.getDelay(attempt);
+        searchMetrics.onRetry();
+        log("Failed to convert upc " + upc + ". Retry in " + delay + " ms");
+        retriesScheduled.incrementAndGet();
+        scheduler.schedule(() -> {
+            retries.add(upc);
+            retriesScheduled.decrementAndGet();
+            sendNewRequests();
+        }, delay, TimeUnit.MILLISECONDS);
+        return true;
+    }
+
     private void initCallbacks() {
         callback = new Callback() {
+            //Retries are scheduled before the request leaves in-flight counter, so completion can't be missed
             @Override
-            public synchronized void onResponse(@NotNull Call call, @NotNull Response response) {
+            public void onResponse(@NotNull Call call, @NotNull Response response) {
                 if (!isRunning) return;
-                threads--;
                 String upc = call.request().url().queryParameter("barcode");
+                //Discogs responds with 429 when requests are throttled
+                if (response.code() == 429) concurrencyLimiter.onDropped();
+                else concurrencyLimiter.onSuccess(response.receivedResponseAtMillis() - response.sentRequestAtMillis());
+                if (response.code() == 429 || response.code() >= 500) {
+                    searchMetrics.onError();
+                    response.close();
+                    if (!retry(upc)) log("Failed to convert upc " + upc);
+                    threads.decrementAndGet();
+                    sendNewRequests();
+                    return;
+                }
+                circuitBreaker.onSuccess();
                 try {
-                    String jsonData = response.body().string();
-                    JsonObject root = new Gson().fromJson(jsonData, JsonObject.class);
-                    JsonArray results = root.get("results").getAsJsonArray();
-                    if (results.size() > 0) {
-                        Release release = new Gson().fromJson(results.get(0), Release.class);
-                        convertorListener.onUpcConverted(upc, release);
+                    String json = response.body().string();
+                    long parseStart = System.nanoTime();
+                    Release release = parseRelease(json);
+                    searchMetrics.recordParseTime(System.nanoTime() - parseStart);
+                    if (release != null) {
+                        metrics.addItems(1);
+                        for (String inputUpc : upcsByBarcode.get(upc)) convertorListener.onUpcConverted(inputUpc, release);
                     } else {
-                        convertorListener.onUpcNotFound(upc);
+                        for (String inputUpc : upcsByBarcode.get(upc)) convertorListener.onUpcNotFound(inputUpc);
                         log("No results found for UPC " + upc);
                     }
                 } catch (Exception e) {
+                    searchMetrics.onError();
                     e.printStackTrace();
                     log("Failed to convert upc " + upc);
                 }
-                checkIsComplete();
+                threads.decrementAndGet();
                 sendNewRequests();
             }
 
             @Override
-            public synchronized void onFailure(@NotNull Call call, @NotNull IOException e) {
-                threads--;
-                log("Failed to convert upc " + call.request().url().queryParameter("barcode"));
-                checkIsComplete();
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                if (!isRunning) return;
+                concurrencyLimiter.onDropped();
+                String upc = call.request().url().queryParameter("barcode");
+                if (!retry(upc)) log("Failed to convert upc " + upc);
+                threads.decrementAndGet();
                 sendNewRequests();
             }
         };
     }
 
+    //Barcode search doesn't depend on separators between digits
+    static String toBarcode(String upc) {
+        return upc.trim().replaceAll("[\\s-]+", "");
+    }
+
+    //Discogs search response. Returns the first found release or null if nothing is found
+    static Release parseRelease(String json) {
+        JsonObject root = gson.fromJson(json, JsonObject.class);
+        JsonArray results = root.get("results").getAsJsonArray();
+        if (results.size() == 0) return null;
+        return gson.fromJson(results.get(0), Release.class);
+    }
+
     private void checkIsComplete() {
-        if (threads == 0 && unprocessed.isEmpty()) onFinish();
+        if (threads.get() == 0 && retriesScheduled.get() == 0 && unprocessed.isEmpty() && retries.isEmpty()) onFinish();
     }
 
     private void onFinish() {
         isRunning = false;
-        client.connectionPool().evictAll();
+        if (!isFinished.compareAndSet(false, true)) return;
+        scheduler.shutdownNow();
         convertorListener.onAllUpcConverted();
     }
 
+    //Methods are called from OkHttp threads, several UPCs may be converted at the same time
     public interface ConvertorListener {
         void onUpcConverted(String upc, Release release);
         void onUpcNotFound(String upc);
@@ -126,20 +234,43 @@ public class UpcConvertor {
 
     public void setLogger(Logger logger) {
         this.logger = logger;
+        concurrencyLimiter.setLogger(logger);
     }
 
     public int getMaxThreads() {
-        return maxThreads;
+        return concurrencyLimiter.getMaxLimit();
     }
 
+    //Upper bound of the adaptive concurrency limit
     public void setMaxThreads(int maxThreads) {
-        this.maxThreads = maxThreads;
+        concurrencyLimiter.setBounds(Math.min(concurrencyLimiter.getMinLimit(), maxThreads), maxThreads);
+    }
+
+    //Current number of requests allowed to be in flight
+    public int getConcurrencyLimit() {
+        return concurrencyLimiter.getLimit();
     }
 
     public long getTimeout() {
         return timeout;
     }
 
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
     public void setTimeout(long timeout) {
         this.timeout = timeout;
     }
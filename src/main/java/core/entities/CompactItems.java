@@ -0,0 +1,76 @@
+package core.entities;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+//Items stored in parallel primitive arrays: numeric id, price and coded selling state, ~17 bytes per item.
+//Item objects are created only when requested. Item URL is rebuilt from the id, so it doesn't contain the title part.
+//Items which can't be coded (non-numeric id or unknown selling state) are kept as they are
+class CompactItems extends AbstractList<Item> {
+
+    private static final String ITEM_URL = "https://www.ebay.com/itm/";
+    private static final String[] SELLING_STATES = {"Active", "EndedWithSales", "EndedWithoutSales", "Ended", "Canceled"};
+    private static final byte NOT_CODED = -1;
+
+    private long[] ids = new long[16];
+    private double[] prices = new double[16];
+    private byte[] states = new byte[16];
+    private int size;
+    private Map<Integer, Item> notCoded = new HashMap<>();
+
+    @Override
+    public boolean add(Item item) {
+        if (size == ids.length) grow();
+        byte state = code(item.getSellingStatus());
+        long id = state == NOT_CODED ? -1 : parseId(item.getItemId());
+        if (id < 0) {
+            state = NOT_CODED;
+            notCoded.put(size, item);
+        }
+        ids[size] = id;
+        prices[size] = item.getPrice();
+        states[size] = state;
+        size++;
+        return true;
+    }
+
+    @Override
+    public Item get(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        if (states[index] == NOT_CODED) return notCoded.get(index);
+        String itemId = String.valueOf(ids[index]);
+        return new Item(itemId, prices[index], SELLING_STATES[states[index]], ITEM_URL + itemId);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void grow() {
+        int capacity = size + (size >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        states = Arrays.copyOf(states, capacity);
+    }
+
+    private static byte code(String sellingState) {
+        for (byte i = 0; i < SELLING_STATES.length; i++)
+            if (SELLING_STATES[i].equals(sellingState)) return i;
+        return NOT_CODED;
+    }
+
+    //Returns -1 if id is not a plain non-negative number
+    private static long parseId(String itemId) {
+        if (itemId.isEmpty() || itemId.length() > 18 || itemId.charAt(0) == '0' && itemId.length() > 1) return -1;
+        long id = 0;
+        for (int i = 0; i < itemId.length(); i++) {
+            char c = itemId.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+}
@@ -24,6 +24,10 @@ public class Item {
         return itemId;
     }
 
+    public String getItemUrl() {
+        return itemUrl;
+    }
+
     public String getSellingStatus() {
         return sellingStatus;
     }
@@ -3,96 +3,157 @@ package core.entities;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 public class Result {
 
     private String query;
-    private List<Item> items = new ArrayList<>();
+    private List<Item> items;
     private boolean isSuccess;
     private int activeItemsTotal;
     private int completeItemsTotal;
     private Status status;
     private String searchUrl;
+    private final ItemsStorage itemsStorage;
+
+    private DoubleSummaryStatistics activePrices = new DoubleSummaryStatistics();
+    private DoubleSummaryStatistics completePrices = new DoubleSummaryStatistics();
+    private long soldItems;
 
     public Result(String query) {
+        this(query, ItemsStorage.OBJECTS);
+    }
+
+    public Result(String query, ItemsStorage itemsStorage) {
         this.query = query;
+        this.itemsStorage = itemsStorage;
+        this.items = newItemsList();
         this.status = Status.NEW;
         isSuccess = false;
     }
 
     public long getActiveItemsFound() {
-        return items.stream()
-                .filter(i -> !i.isComplete())
-                .count();
+        return activePrices.getCount();
     }
 
     public long getCompleteItemsFound() {
-        return items.stream()
-                .filter(Item::isComplete)
-                .count();
+        return completePrices.getCount();
     }
 
     public long getSoldItems() {
-        return items.stream()
-                .filter(Item::isSold)
-                .count();
+        return soldItems;
     }
 
     public double getAvgPriceListed() {
-        return round(items.stream()
-                .filter(i -> !i.isComplete())
-                .mapToDouble(Item::getPrice)
-                .average()
-                .orElse(0d), 2);
+        return round(activePrices.getAverage(), 2);
     }
 
     public double getAvgPriceSold() {
-        return round(items.stream()
-                .filter(Item::isComplete)
-                .mapToDouble(Item::getPrice)
-                .average()
-                .orElse(0d), 2);
+        return round(completePrices.getAverage(), 2);
     }
 
     public double getSoldRatio() {
-        if (items.size() == 0) return 0.0;
-        return  round(getSoldItems() * 1.0 / items.size(), 2);
+        if (getItemsCount() == 0) return 0.0;
+        return  round(soldItems * 1.0 / getItemsCount(), 2);
     }
 
     public String getSoldRatioString() {
-        if (items.size() == 0) return "0.0%";
-        return  round(getSoldItems() * 100.0 / items.size(), 2) + "%";
+        if (getItemsCount() == 0) return "0.0%";
+        return  round(soldItems * 100.0 / getItemsCount(), 2) + "%";
     }
 
     public double getCurValue() {
-        if (getSoldRatio() > 0.3) return round(getAvgPriceListed() * (1 + getSoldRatio()), 2);
-        else return round(getAvgPriceSold() * (1 + getSoldRatio()), 2);
+        double soldRatio = getSoldRatio();
+        if (soldRatio > 0.3) return round(getAvgPriceListed() * (1 + soldRatio), 2);
+        else return round(getAvgPriceSold() * (1 + soldRatio), 2);
     }
 
     public int getItemsCount() {
-        return items.size();
+        return (int) (activePrices.getCount() + completePrices.getCount());
     }
 
     public void addItem(Item item) {
-        items.add(item);
+        if (itemsStorage != ItemsStorage.NONE) items.add(item);
+        count(item);
+    }
+
+    public void addItems(Collection<Item> newItems) {
+        if (itemsStorage != ItemsStorage.NONE) items.addAll(newItems);
+        for (Item item : newItems) count(item);
+    }
+
+    //Running aggregates are updated on every added item, so the getters above don't need to scan the items list.
+    //DoubleSummaryStatistics uses the same compensated summation as DoubleStream.average()
+    private void count(Item item) {
+        if (item.isComplete()) completePrices.accept(item.getPrice());
+        else activePrices.accept(item.getPrice());
+        if (item.isSold()) soldItems++;
+    }
+
+    private void recount() {
+        activePrices = new DoubleSummaryStatistics();
+        completePrices = new DoubleSummaryStatistics();
+        soldItems = 0;
+        for (Item item : items) count(item);
     }
 
     public String getQuery() {
         return query;
     }
 
+    //Makes the result a copy of the result of an equivalent query, the query stays. Items are shared, not copied
+    public void mirror(Result source) {
+        items = source.items;
+        isSuccess = source.isSuccess;
+        activeItemsTotal = source.activeItemsTotal;
+        completeItemsTotal = source.completeItemsTotal;
+        status = source.status;
+        searchUrl = source.searchUrl;
+        activePrices = copy(source.activePrices);
+        completePrices = copy(source.completePrices);
+        soldItems = source.soldItems;
+    }
+
+    //Copy which isn't changed by further loading. Without items only the statistics are copied
+    public Result snapshot(boolean withItems) {
+        Result snapshot = new Result(query, withItems ? itemsStorage : ItemsStorage.NONE);
+        List<Item> snapshotItems = snapshot.items;
+        snapshot.mirror(this);
+        snapshot.items = snapshotItems;
+        if (withItems) snapshotItems.addAll(items);
+        return snapshot;
+    }
+
+    private static DoubleSummaryStatistics copy(DoubleSummaryStatistics statistics) {
+        DoubleSummaryStatistics copy = new DoubleSummaryStatistics();
+        copy.combine(statistics);
+        return copy;
+    }
+
     void setQuery(String query) {
         this.query = query;
     }
 
+    //Empty if items are not stored
     public List<Item> getItems() {
-        return items;
+        return Collections.unmodifiableList(items);
     }
 
     void setItems(List<Item> items) {
         this.items = items;
+        recount();
+        if (itemsStorage != ItemsStorage.OBJECTS) {
+            this.items = newItemsList();
+            if (itemsStorage == ItemsStorage.COMPACT) this.items.addAll(items);
+        }
+    }
+
+    private List<Item> newItemsList() {
+        return itemsStorage == ItemsStorage.COMPACT ? new CompactItems() : new ArrayList<>();
+    }
+
+    public ItemsStorage getItemsStorage() {
+        return itemsStorage;
     }
 
     public boolean getIsSuccess() {
@@ -131,6 +192,13 @@ public class Result {
         return status.getName();
     }
 
+    //How items are kept after their statistics are counted
+    public enum ItemsStorage {
+        OBJECTS, //All items are kept as they are
+        COMPACT, //Items are kept in primitive arrays, Item objects are created on access and item URLs are shortened
+        NONE //Only statistics are kept, items are available to ResultSink only
+    }
+
     public enum Status {
         NEW("New"),
         LOADING("Items searching"),
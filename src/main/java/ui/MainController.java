@@ -20,6 +20,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -34,6 +35,7 @@ public class MainController implements Initializable, Logger, ItemsSeeker.Result
     @FXML private TextArea consoleTa;
     @FXML private Button searchingBtn;
     @FXML private Button stopBtn;
+    @FXML private Button resumeBtn;
     @FXML private Button clearBtn;
     @FXML private ComboBox<String> conditionCb;
     @FXML private Spinner<Integer> maxThreadsSpn;
@@ -70,6 +72,8 @@ public class MainController implements Initializable, Logger, ItemsSeeker.Result
     private String appName;
     private String discogsToken;
     private Category category;
+    private DiskCache diskCache;
+    private final Path checkpointFile = Paths.get("checkpoint.jsonl");
 
 
     @Override
@@ -82,6 +86,11 @@ public class MainController implements Initializable, Logger, ItemsSeeker.Result
         }
         Category.setAppName(appName);
         selectCategory("-1");
+        try {
+            diskCache = new DiskCache(Paths.get("cache"), 512L * 1024 * 1024);
+        } catch (IOException e) {
+            log("Unable to open response cache");
+        }
 
         queryCol.setCellValueFactory(new PropertyValueFactory<>("query"));
         statusCol.setCellValueFactory(new PropertyValueFactory<>("statusString"));
@@ -116,6 +125,7 @@ public class MainController implements Initializable, Logger, ItemsSeeker.Result
 
         searchingBtn.setTooltip(new Tooltip("Start searching for items"));
         clearBtn.setTooltip(new Tooltip("Clear all results"));
+        resumeBtn.setTooltip(new Tooltip("Continue the last stopped or interrupted searching"));
         parentCategoryBtn.setTooltip(new Tooltip("Select parent category"));
         subcategoryBtn.setTooltip(new Tooltip("Select subcategory"));
 
@@ -139,9 +149,19 @@ public class MainController implements Initializable, Logger, ItemsSeeker.Result
             return;
         }
         List<String> queries = Arrays.asList(queriesTa.getText().split("\\r?\\n"));
-        itemsSeeker = new ItemsSeeker(queries, appName, getCondition(), this);
+        //Engine is chosen with -Dengine=virtual_threads
+        try {
+            ItemsSeeker.Engine engine = ItemsSeeker.Engine.valueOf(System.getProperty("engine", "callbacks").toUpperCase());
+            itemsSeeker = ItemsSeeker.create(engine, queries, appName, getCondition(), this);
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            showAlert("Error", "Unable to create items seeker: " + e.getMessage());
+            return;
+        }
         itemsSeeker.setLogger(this);
         itemsSeeker.setMaxThreads(maxThreadsSpn.getValue());
+        itemsSeeker.setScheduling(ItemsSeeker.Scheduling.SHORTEST_FIRST); //Table fills up with small queries while large ones are loaded
+        itemsSeeker.setDiskCache(diskCache);
+        itemsSeeker.setItemsStorage(Result.ItemsStorage.COMPACT); //Table shows only statistics of results
         //Items limit
         try {
             if (itemsLimitTf.getText() != null && itemsLimitTf.getText().length() > 0)
@@ -153,10 +173,41 @@ public class MainController implements Initializable, Logger, ItemsSeeker.Result
         //Category
         if (categoryIdTf.getText() != null && categoryIdTf.getText().length() > 0)
             itemsSeeker.setCategoryId(categoryIdTf.getText());
+        try {
+            itemsSeeker.setCheckpoint(Checkpoint.create(checkpointFile));
+        } catch (IOException e) {
+            log("Unable to create checkpoint. Searching can't be resumed");
+        }
 
         log("--- Items searching started ---");
+        log("Daily API calls budget left: " + itemsSeeker.getRateLimiter().getRemainingDailyBudget());
         stopBtn.setDisable(false);
         searchingBtn.setDisable(true);
+        resumeBtn.setDisable(true);
+        itemsSeeker.start();
+    }
+
+    @FXML
+    private void resumeSearching() {
+        stop();
+        clearOutput();
+        if (convertor != null) convertor.stop();
+        try {
+            itemsSeeker = ItemsSeeker.resume(checkpointFile, appName, this);
+        } catch (IOException e) {
+            showAlert("Error", "Nothing to resume");
+            return;
+        }
+        itemsSeeker.setLogger(this);
+        itemsSeeker.setMaxThreads(maxThreadsSpn.getValue());
+        itemsSeeker.setScheduling(ItemsSeeker.Scheduling.SHORTEST_FIRST); //Table fills up with small queries while large ones are loaded
+        itemsSeeker.setDiskCache(diskCache);
+        itemsSeeker.setItemsStorage(Result.ItemsStorage.COMPACT); //Table shows only statistics of results
+
+        log("--- Items searching resumed ---");
+        stopBtn.setDisable(false);
+        searchingBtn.setDisable(true);
+        resumeBtn.setDisable(true);
         itemsSeeker.start();
     }
 
@@ -208,18 +259,23 @@ public class MainController implements Initializable, Logger, ItemsSeeker.Result
 
     @Override
     public void onResultReceived(Result result) {
-        if (!resultsSet.contains(result.getQuery())) {
-            resultsSet.add(result.getQuery());
-            results.add(result);
-        }
-        table.refresh();
+        Platform.runLater(() -> {
+            if (!resultsSet.contains(result.getQuery())) {
+                resultsSet.add(result.getQuery());
+                results.add(result);
+            }
+            table.refresh();
+        });
     }
 
     @Override
     public void onAllResultsReceived() {
         log("--- Items searching completed ---");
-        stopBtn.setDisable(true);
-        searchingBtn.setDisable(false);
+        Platform.runLater(() -> {
+            stopBtn.setDisable(true);
+            searchingBtn.setDisable(false);
+            resumeBtn.setDisable(false);
+        });
     }
 
     @Override
@@ -268,28 +324,32 @@ public class MainController implements Initializable, Logger, ItemsSeeker.Result
 
     @Override
     public void onUpcConverted(String upc, Release release) {
-        queriesTa.setText(queriesTa.getText()
-                + (queriesTa.getText() == null || queriesTa.getText().isEmpty() ? "" : "\n")
-                + release.getTitle());
-
-        fullTitleTa.setText(fullTitleTa.getText()
-                + (fullTitleTa.getText() == null || fullTitleTa.getText().isEmpty() ? "" : "\n")
-                + release.toString()
-        );
+        Platform.runLater(() -> {
+            queriesTa.setText(queriesTa.getText()
+                    + (queriesTa.getText() == null || queriesTa.getText().isEmpty() ? "" : "\n")
+                    + release.getTitle());
+
+            fullTitleTa.setText(fullTitleTa.getText()
+                    + (fullTitleTa.getText() == null || fullTitleTa.getText().isEmpty() ? "" : "\n")
+                    + release.toString()
+            );
+        });
     }
 
     @Override
     public void onAllUpcConverted() {
-        if (notFoundUpcs.isEmpty()) log("All UPCs converted");
-        else
-            log("UPCs conversion finished. The following UPCs were not found:\n"
-                    + String.join( "\n", notFoundUpcs));
-        convertBtn.setDisable(false);
+        Platform.runLater(() -> {
+            if (notFoundUpcs.isEmpty()) log("All UPCs converted");
+            else
+                log("UPCs conversion finished. The following UPCs were not found:\n"
+                        + String.join( "\n", notFoundUpcs));
+            convertBtn.setDisable(false);
+        });
     }
 
     @Override
     public void onUpcNotFound(String upc) {
-        notFoundUpcs.add(upc);
+        Platform.runLater(() -> notFoundUpcs.add(upc));
     }
 
     private void openUrl(String url) {
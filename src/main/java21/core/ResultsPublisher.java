@@ -0,0 +1,122 @@
+package core;
+
+import core.entities.Result;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+//Publishes results of a seeker to reactive subscribers: pages() emits statistics of the query after every loaded page,
+//queries() emits the query with its items once it is completed. Both publishers complete when the run is finished.
+//Emitted results are snapshots, they don't change after they are published. Loading threads never wait for subscribers:
+//page snapshot is dropped for a subscriber with a full buffer (the next one supersedes it), completed queries are
+//submitted from a separate thread.
+//When a publisher has subscribers and none of them has requested more results, the dispatch gate is closed,
+//so requests are sent only as fast as the subscribers consume results. Publisher without subscribers doesn't hold the run.
+//Usage: seeker = ItemsSeeker.create(engine, queries, appname, condition, publisher);
+//seeker.setDispatchGate(publisher.getDispatchGate())
+public class ResultsPublisher implements ItemsSeeker.ResultsLoadingListener {
+
+    private final SubmissionPublisher<Result> pages = new SubmissionPublisher<>();
+    private final SubmissionPublisher<Result> queries = new SubmissionPublisher<>();
+    private final DispatchGate dispatchGate = new DispatchGate();
+    private final ExecutorService submitter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "results-publisher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public Flow.Publisher<Result> pages() {
+        return subscriber -> pages.subscribe(new DemandTracker(subscriber));
+    }
+
+    public Flow.Publisher<Result> queries() {
+        return subscriber -> queries.subscribe(new DemandTracker(subscriber));
+    }
+
+    public DispatchGate getDispatchGate() {
+        return dispatchGate;
+    }
+
+    @Override
+    public boolean needsSnapshots() {
+        return true;
+    }
+
+    @Override
+    public void onResultReceived(Result result) {
+        if (pages.isClosed()) return; //Stopped run
+        pages.offer(result, (subscriber, dropped) -> false);
+        updateGate();
+    }
+
+    @Override
+    public void onResultCompleted(Result result) {
+        submitter.execute(() -> {
+            if (queries.isClosed()) return;
+            queries.submit(result);
+            updateGate();
+        });
+    }
+
+    //Queries are closed after the ones submitted before
+    @Override
+    public void onAllResultsReceived() {
+        pages.close();
+        submitter.execute(queries::close);
+        submitter.shutdown();
+    }
+
+    //Demand is checked under the lock, so the last check sees all requests made before it
+    private synchronized void updateGate() {
+        if (hasDemand(pages) && hasDemand(queries)) dispatchGate.open();
+        else dispatchGate.close();
+    }
+
+    private static boolean hasDemand(SubmissionPublisher<Result> publisher) {
+        return !publisher.hasSubscribers() || publisher.estimateMinimumDemand() > 0;
+    }
+
+    //Passes the subscriber a subscription which updates the gate on every request and cancel
+    private class DemandTracker implements Flow.Subscriber<Result> {
+        private final Flow.Subscriber<? super Result> subscriber;
+
+        DemandTracker(Flow.Subscriber<? super Result> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    subscription.request(n);
+                    updateGate();
+                }
+
+                @Override
+                public void cancel() {
+                    subscription.cancel();
+                    updateGate();
+                }
+            });
+            updateGate();
+        }
+
+        @Override
+        public void onNext(Result result) {
+            subscriber.onNext(result);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            subscriber.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            subscriber.onComplete();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package core;
+
+import core.entities.Result;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+//Engine which loads every query as straight-line blocking code on virtual threads.
+//Requests in flight are limited by a semaphore, so thousands of them may wait for responses at the same time.
+//Created with ItemsSeeker.create(Engine.VIRTUAL_THREADS, ...), built with the jdk21 profile only
+class VirtualThreadsItemsSeeker extends ItemsSeeker {
+
+    private ExecutorService executor;
+    private Semaphore requests;
+    private Thread runner;
+
+    VirtualThreadsItemsSeeker(List<String> queries, Iterator<String> querySource, String appname, Condition condition,
+                              ResultsLoadingListener resultsLoadingListener) {
+        super(queries, querySource, appname, condition, resultsLoadingListener);
+    }
+
+    @Override
+    public void start() {
+        if (getCheckpoint() != null) {
+            log("Checkpoint is not supported by the virtual threads engine");
+            setCheckpoint(null);
+        }
+        if (getScheduling() != Scheduling.FIFO) log("Scheduling is not supported by the virtual threads engine, queries are loaded in parallel");
+        prepare();
+        requests = new Semaphore(getMaxThreads());
+        getMetrics().setGauges(requests::getQueueLength, () -> getMaxThreads() - requests.availablePermits());
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        runner = Thread.ofVirtual().name("ItemsSeeker runner").start(this::run);
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (executor != null) executor.shutdownNow();
+        if (runner != null) runner.interrupt();
+    }
+
+    //New query is started when a running query is completed, so memory is held only by queries being loaded
+    private void run() {
+        int slots = getMaxThreads();
+        Semaphore queries = new Semaphore(slots);
+        try (ExecutorService executor = this.executor) {
+            while (isRunning()) {
+                PageRequest firstPage = pullQuery();
+                if (firstPage == null) {
+                    if (isSourceDrained()) break;
+                    Thread.sleep(SOURCE_POLL_DELAY);
+                    continue;
+                }
+                queries.acquire();
+                String query = firstPage.getQuery();
+                executor.submit(() -> {
+                    try {
+                        loadQuery(getState(query));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException e) {
+                        log("Query: " + query + " - unable to process result");
+                        e.printStackTrace();
+                    } finally {
+                        queries.release();
+                    }
+                });
+            }
+            queries.acquire(slots); //Queries submit their pages to the executor, so it is closed only when all of them are done
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        onFinish();
+    }
+
+    private void loadQuery(QueryState state) throws InterruptedException {
+        for (CallType phase : CallType.values()) {
+            if (phase != CallType.ACTIVE) {
+                log(String.format("%-30s%s", "Query: " + state.getQuery(), " - active items loaded. Starting loading of complete items"));
+                synchronized (state) {
+                    state.startPhase(phase);
+                }
+            }
+            loadPages(state, loadPage(state, new PageRequest(state.getQuery(), phase, 1)));
+            if (!isRunning()) return;
+        }
+        synchronized (state) {
+            completeQuery(state);
+        }
+        notifyCompleted(state);
+    }
+
+    //Pages are loaded in parallel, first pages of price bands load the rest of their bands
+    private void loadPages(QueryState state, List<PageRequest> pageRequests) throws InterruptedException {
+        List<Future<?>> pages = new ArrayList<>();
+        for (PageRequest pageRequest : pageRequests) {
+            pages.add(executor.submit(() -> {
+                loadPages(state, loadPage(state, pageRequest));
+                return null;
+            }));
+        }
+        for (Future<?> page : pages) {
+            try {
+                page.get();
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    //Returns pages planned by this one
+    private List<PageRequest> loadPage(QueryState state, PageRequest page) throws InterruptedException {
+        Result pageResult = null;
+        while (isRunning()) {
+            long pause = getCircuitBreaker().getRemainingPause();
+            if (pause > 0) Thread.sleep(pause);
+            Request request = newRequest(page);
+            //Cached pages don't spend API calls
+            if ((getDiskCache() == null || !getDiskCache().contains(request.url())) && !getRateLimiter().acquire()) {
+                log(String.format("%-30s%s", "Query: " + page.getQuery(),
+                        " - " + page.getPageName() + ": daily API calls budget is exhausted"));
+                break;
+            }
+            if (getDispatchGate() != null) getDispatchGate().awaitOpen();
+            requests.acquire();
+            try (Response response = getClient().newCall(request).execute()) {
+                pageResult = readPage(page, response);
+            } catch (IOException e) {
+                onDropped();
+            } finally {
+                requests.release();
+            }
+            if (pageResult != null) break;
+            long delay = getRetryDelay(page);
+            if (delay < 0) break;
+            Thread.sleep(delay);
+            page = page.nextAttempt();
+        }
+        if (!isRunning()) return Collections.emptyList();
+        List<PageRequest> nextPages = Collections.emptyList();
+        synchronized (state) {
+            if (pageResult != null && !isRejected(pageResult)) nextPages = mergePage(state, page, pageResult);
+            else failPage(state, page);
+            if (state.getResult().getStatus() == Result.Status.NEW) state.getResult().setStatus(Result.Status.LOADING);
+        }
+        notifyResult(state);
+        return nextPages;
+    }
+}
@@ -0,0 +1,27 @@
+package core;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//Parsing of the category info used by Category.findById
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CategoryBenchmark {
+
+    private String json;
+
+    @Setup
+    public void setUp() {
+        json = Fixtures.read("category");
+    }
+
+    @Benchmark
+    public Category parse() {
+        return Category.parse("11233", json);
+    }
+}
@@ -0,0 +1,31 @@
+package core;
+
+import core.entities.Release;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+//Handling of Discogs search responses in UpcConvertor
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DiscogsBenchmark {
+
+    @Param({"discogs-search", "discogs-search-empty"})
+    public String fixture;
+
+    private String json;
+
+    @Setup
+    public void setUp() {
+        json = Fixtures.read(fixture);
+    }
+
+    @Benchmark
+    public Release parseRelease() {
+        return UpcConvertor.parseRelease(json);
+    }
+}
@@ -0,0 +1,60 @@
+package core;
+
+import core.entities.Result;
+import okhttp3.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+//Parsing of Finding API pages: ItemsSeeker.extractResult on a response made from a saved page
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExtractResultBenchmark {
+
+    @Param({"finding-active-small", "finding-active-100", "finding-active-error",
+            "finding-completed-small", "finding-completed-100", "finding-completed-error"})
+    public String fixture;
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private ItemsSeeker itemsSeeker;
+    private ItemsSeeker.CallType callType;
+    private Request request;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        itemsSeeker = new ItemsSeeker(Collections.singletonList("pink floyd the wall"), "BENCHMARK", ItemsSeeker.Condition.ALL,
+                new ItemsSeeker.ResultsLoadingListener() {
+                    @Override
+                    public void onResultReceived(Result result) {}
+
+                    @Override
+                    public void onAllResultsReceived() {}
+                });
+        callType = fixture.startsWith("finding-active") ? ItemsSeeker.CallType.ACTIVE : ItemsSeeker.CallType.COMPLETED;
+        request = new Request.Builder()
+                .url("https://svcs.ebay.com/services/search/FindingService/v1?keywords=pink+floyd+the+wall")
+                .build();
+        body = Fixtures.read(fixture).getBytes(StandardCharsets.UTF_8);
+    }
+
+    //Response object is created in every call, because its body can be read once
+    @Benchmark
+    public Result extractResult() {
+        Response response = new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(body, JSON))
+                .build();
+        return itemsSeeker.extractResult(response, callType);
+    }
+}
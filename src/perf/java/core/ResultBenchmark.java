@@ -0,0 +1,67 @@
+package core;
+
+import core.entities.Item;
+import core.entities.Result;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//Result with 10k items: statistics getters, adding items and reading items back
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResultBenchmark {
+
+    private static final int ITEMS_COUNT = 10000;
+    private static final String[] SELLING_STATES = {"Active", "EndedWithSales", "EndedWithoutSales"};
+
+    @Param({"OBJECTS", "COMPACT"})
+    public Result.ItemsStorage itemsStorage;
+
+    private List<Item> items;
+    private Result result;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        items = new ArrayList<>(ITEMS_COUNT);
+        for (int i = 0; i < ITEMS_COUNT; i++) {
+            String itemId = String.valueOf(123456789012L + i * 7919L);
+            double price = Math.round(random.nextDouble() * 12000) / 100.0;
+            items.add(new Item(itemId, price, SELLING_STATES[random.nextInt(SELLING_STATES.length)],
+                    "https://www.ebay.com/itm/" + itemId));
+        }
+        result = new Result("benchmark", itemsStorage);
+        result.addItems(items);
+    }
+
+    @Benchmark
+    public void aggregates(Blackhole blackhole) {
+        blackhole.consume(result.getItemsCount());
+        blackhole.consume(result.getAvgPriceListed());
+        blackhole.consume(result.getAvgPriceSold());
+        blackhole.consume(result.getSoldRatio());
+        blackhole.consume(result.getCurValue());
+    }
+
+    @Benchmark
+    public Result addItems() {
+        Result newResult = new Result("benchmark", itemsStorage);
+        newResult.addItems(items);
+        return newResult;
+    }
+
+    @Benchmark
+    public double readItems() {
+        double sum = 0;
+        for (Item item : result.getItems()) sum += item.getPrice();
+        return sum;
+    }
+}
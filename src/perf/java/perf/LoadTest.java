@@ -0,0 +1,122 @@
+package perf;
+
+import core.Endpoints;
+import core.HttpTransport;
+import core.ItemsSeeker;
+import core.LatencyHistogram;
+import core.Metrics;
+import core.RateLimiter;
+import core.entities.Result;
+import okhttp3.HttpUrl;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+//Runs ItemsSeeker against the stand-in server and reports pages per second, latency and completion time.
+//Request latency is measured by the client (see Metrics), the server reports its own time separately.
+//java -cp target/benchmarks.jar perf.LoadTest --queries 10000 --threads 32 --items-limit 1000 --latency 80 --latency-p99 400
+//Other options: --input <file> - queries from a file instead of generated ones, --url <server> - use an already running
+//server instead of the embedded one, --engine <callbacks|virtual_threads>, --price-bands <threshold>,
+//--scheduling <fifo|shortest_first|round_robin> (see ItemsSeeker),
+//--error-rate, --rate-limit, --max-total (see StandInServer)
+public class LoadTest implements ItemsSeeker.ResultsLoadingListener {
+
+    private static final String APP_ID = "LOAD-TEST";
+    private static final String[] WORDS = {"vinyl", "shimano reel", "lego", "nikon lens", "pokemon card", "zippo", "rolex", "gameboy"};
+
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final LatencyHistogram completionTimes = new LatencyHistogram();
+    private volatile long startedAt;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        StandInServer server = null;
+        String url = options.get("url");
+        if (url == null) {
+            server = new StandInServer(0);
+            server.configure(options);
+            server.start();
+            url = server.getUrl();
+        }
+        Endpoints.useServer(url);
+        //Quota of the real App ID doesn't apply to the stand-in
+        RateLimiter rateLimiter = RateLimiter.forAppId(APP_ID);
+        rateLimiter.setPermitsPerSecond(Double.parseDouble(options.getOrDefault("client-rate", "1000000")));
+        rateLimiter.setDailyBudget(Long.MAX_VALUE);
+
+        Iterator<String> queries;
+        if (options.containsKey("input")) {
+            queries = Files.readAllLines(Paths.get(options.get("input")), StandardCharsets.UTF_8).iterator();
+        } else {
+            int count = Integer.parseInt(options.getOrDefault("queries", "1000"));
+            queries = IntStream.range(0, count).mapToObj(i -> WORDS[i % WORDS.length] + " " + i).iterator();
+        }
+        LoadTest loadTest = new LoadTest();
+        ItemsSeeker itemsSeeker = ItemsSeeker.create(
+                ItemsSeeker.Engine.valueOf(options.getOrDefault("engine", "callbacks").toUpperCase()),
+                queries, APP_ID, ItemsSeeker.Condition.ALL, loadTest);
+        itemsSeeker.setMaxThreads(Integer.parseInt(options.getOrDefault("threads", "32")));
+        itemsSeeker.setItemsLimit(Integer.parseInt(options.getOrDefault("items-limit", "1000")));
+        itemsSeeker.setScheduling(ItemsSeeker.Scheduling.valueOf(options.getOrDefault("scheduling", "fifo").toUpperCase()));
+        itemsSeeker.setPartitionThreshold(Integer.parseInt(options.getOrDefault("price-bands", "0")));
+        itemsSeeker.setRetainResults(false);
+        itemsSeeker.setItemsStorage(Result.ItemsStorage.NONE);
+
+        loadTest.startedAt = System.nanoTime();
+        itemsSeeker.start();
+        loadTest.finished.await();
+        long elapsed = (System.nanoTime() - loadTest.startedAt) / 1000000;
+
+        HttpTransport.HostStats stats = HttpTransport.shared().getHostStats().get(HttpUrl.get(Endpoints.getFindingUrl()).host());
+        long calls = stats != null ? stats.getCalls() : 0;
+        System.out.println("Queries completed:  " + loadTest.completed.get() + " (with errors: " + loadTest.failed.get() + ")");
+        System.out.println("Completion time:    " + elapsed + " ms");
+        System.out.println("Pages requested:    " + calls + " (" + String.format(Locale.US, "%.1f", calls * 1000.0 / Math.max(elapsed, 1)) + " per second)");
+        System.out.println("Query completed at: p50 " + loadTest.completionTimes.getPercentile(50) + " ms, p99 "
+                + loadTest.completionTimes.getPercentile(99) + " ms since the start");
+        Metrics.of("ItemsSeeker").getCalls().forEach((callType, metrics) -> System.out.println(callType + ": " + metrics));
+        if (server != null) {
+            System.out.println("Server latency:     p50 " + server.getLatencyPercentile(50) + " ms, p99 " + server.getLatencyPercentile(99) + " ms");
+            System.out.println("Server:             " + server.getRequests() + " requests, " + server.getErrors() + " errors, "
+                    + server.getThrottled() + " throttled");
+            server.stop();
+        }
+        if (stats != null) System.out.println("Connections:        " + stats);
+        System.exit(0);
+    }
+
+    @Override
+    public void onResultReceived(Result result) {}
+
+    @Override
+    public void onResultCompleted(Result result) {
+        completed.incrementAndGet();
+        if (result.getStatus() == Result.Status.ERROR) failed.incrementAndGet();
+        completionTimes.record((System.nanoTime() - startedAt) / 1000000);
+    }
+
+    @Override
+    public void onAllResultsReceived() {
+        finished.countDown();
+    }
+
+    //Options are given as --name value pairs
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) throw new IllegalArgumentException("Unexpected option: " + args[i]);
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
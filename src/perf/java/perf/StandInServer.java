@@ -0,0 +1,317 @@
+package perf;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import core.Endpoints;
+import core.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Local stand-in for the Finding, Shopping (GetCategoryInfo) and Discogs search APIs, served by their production paths.
+//Responses are generated from the request, so the same query always gets the same items and totals.
+//Latency follows a log-normal distribution given by its median and 99th percentile, a share of requests fails
+//with HTTP 503 and requests above the rate limit are throttled with the error responses of the real services.
+//Finding API honours MinPrice/MaxPrice item filters, totals of queries are log-uniform from 1 to --max-total.
+//Items with greater ids are newer, sortOrder StartTimeNewest/EndTimeSoonest returns them first. A greater --max-total
+//adds new items to the queries, which is how listings of a delta run are simulated.
+//Standalone run: java -cp target/benchmarks.jar perf.StandInServer [--port 8089] [--latency 80] [--latency-p99 400]
+//[--error-rate 0.01] [--rate-limit 0] [--max-total 8000], then point the app to it with --api-url http://localhost:8089
+public class StandInServer {
+
+    private static final double Z_99 = 2.326; //99th percentile of the standard normal distribution
+    private static final Gson gson = new Gson();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private volatile double latencyMu = Math.log(80);
+    private volatile double latencySigma = 0;
+    private volatile double errorRate = 0;
+    private volatile int maxTotal = 8000;
+    private double rateLimit = 0; //Requests per second, 0 - unlimited. Guarded by this
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong findingRequests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    //Headers and body are written separately, without it delayed ACKs hold every response body for ~40 ms
+    static {
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    //Port 0 binds a free port
+    public StandInServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "Stand-in server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(Endpoints.FINDING_PATH, exchange -> handle(exchange, Api.FINDING));
+        server.createContext(Endpoints.SHOPPING_PATH, exchange -> handle(exchange, Api.SHOPPING));
+        server.createContext(Endpoints.DISCOGS_PATH, exchange -> handle(exchange, Api.DISCOGS));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = LoadTest.parseOptions(args);
+        StandInServer server = new StandInServer(Integer.parseInt(options.getOrDefault("port", "8089")));
+        server.configure(options);
+        server.start();
+        System.out.println("Stand-in server is listening on " + server.getUrl());
+    }
+
+    //Applies --latency, --latency-p99, --error-rate, --rate-limit and --max-total options
+    void configure(Map<String, String> options) {
+        setMaxTotal(Integer.parseInt(options.getOrDefault("max-total", "8000")));
+        long median = Long.parseLong(options.getOrDefault("latency", "80"));
+        setLatency(median, Long.parseLong(options.getOrDefault("latency-p99", String.valueOf(median * 5))));
+        setErrorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")));
+        setRateLimit(Double.parseDouble(options.getOrDefault("rate-limit", "0")));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    //Equal values give a constant latency
+    public void setLatency(long medianMillis, long p99Millis) {
+        if (medianMillis < 1 || p99Millis < medianMillis) throw new IllegalArgumentException("Latency must be 1 <= median <= p99");
+        latencyMu = Math.log(medianMillis);
+        latencySigma = Math.log((double) p99Millis / medianMillis) / Z_99;
+    }
+
+    //Share of requests answered with HTTP 503
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    //Items found by the query with most of them
+    public void setMaxTotal(int maxTotal) {
+        if (maxTotal < 1) throw new IllegalArgumentException("Max total must be positive");
+        this.maxTotal = maxTotal;
+    }
+
+    public synchronized void setRateLimit(double requestsPerSecond) {
+        this.rateLimit = requestsPerSecond;
+        this.tokens = Math.max(requestsPerSecond, 1);
+        this.lastRefill = System.nanoTime();
+    }
+
+    private void handle(HttpExchange exchange, Api api) throws IOException {
+        long start = System.nanoTime();
+        requests.incrementAndGet();
+        if (api == Api.FINDING) findingRequests.incrementAndGet();
+        try {
+            Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+            long latency = Math.round(Math.exp(latencyMu + latencySigma * ThreadLocalRandom.current().nextGaussian()));
+            TimeUnit.MILLISECONDS.sleep(latency);
+            if (!tryAcquire()) {
+                throttled.incrementAndGet();
+                respondThrottled(exchange, api, params);
+            } else if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                respond(exchange, 503, "text/plain", "Service Unavailable");
+            } else if (api == Api.FINDING) {
+                respond(exchange, 200, "application/json", findingResponse(params));
+            } else if (api == Api.SHOPPING) {
+                respond(exchange, 200, "application/json", categoryResponse(params.get("CategoryID")));
+            } else {
+                respond(exchange, 200, "application/json", discogsResponse(params.get("barcode")));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            respond(exchange, 500, "text/plain", "Internal Server Error");
+        } finally {
+            exchange.close();
+            latencies.record((System.nanoTime() - start) / 1000000);
+        }
+    }
+
+    private synchronized boolean tryAcquire() {
+        if (rateLimit <= 0) return true;
+        long now = System.nanoTime();
+        tokens = Math.min(Math.max(rateLimit, 1), tokens + (now - lastRefill) * rateLimit / 1e9);
+        lastRefill = now;
+        if (tokens < 1) return false;
+        tokens--;
+        return true;
+    }
+
+    //eBay answers with the call limit error, Discogs with HTTP 429
+    private void respondThrottled(HttpExchange exchange, Api api, Map<String, String> params) throws IOException {
+        if (api == Api.FINDING) {
+            String operation = params.getOrDefault("OPERATION-NAME", "findItemsAdvanced");
+            respond(exchange, 500, "application/json", "{\"" + operation + "Response\":[{\"ack\":[\"Failure\"],\"errorMessage\":[{\"error\":[{"
+                    + "\"errorId\":[\"10001\"],\"domain\":[\"Security\"],\"severity\":[\"Error\"],\"category\":[\"System\"],"
+                    + "\"message\":[\"Service call has exceeded the number of times the operation is allowed to be called\"],"
+                    + "\"subdomain\":[\"RateLimiter\"]}]}],\"version\":[\"1.13.0\"]}]}");
+        } else if (api == Api.SHOPPING) {
+            respond(exchange, 200, "application/json", "{\"Ack\":\"Failure\",\"Errors\":[{\"ShortMessage\":\"Call usage limit has been reached.\","
+                    + "\"LongMessage\":\"Call usage limit has been reached.\",\"ErrorCode\":\"1.21\",\"SeverityCode\":\"Error\"}]}");
+        } else {
+            respond(exchange, 429, "application/json", "{\"message\": \"You are making requests too quickly.\"}");
+        }
+    }
+
+    //Totals are log-uniform, so most queries have a few pages and some have all 100 or more.
+    //Price of every item is given by its id, items out of the price filters are skipped
+    private String findingResponse(Map<String, String> params) {
+        String operation = params.getOrDefault("OPERATION-NAME", "findItemsAdvanced");
+        boolean isCompleted = operation.equals("findCompletedItems");
+        String query = params.getOrDefault("keywords", "");
+        int page = Integer.parseInt(params.getOrDefault("paginationInput.pageNumber", "1"));
+        int perPage = Integer.parseInt(params.getOrDefault("paginationInput.entriesPerPage", "100"));
+        long seed = query.hashCode() * 0x9E3779B97F4A7C15L + (isCompleted ? 1 : 0);
+        int allItems = (int) Math.exp(new Random(seed).nextDouble() * Math.log(maxTotal));
+        long firstId = (isCompleted ? 200000000000L : 100000000000L) + Math.floorMod(seed, 5000000L) * 20000;
+        double minPrice = 0;
+        double maxPrice = Double.MAX_VALUE;
+        for (int i = 0; params.containsKey("itemFilter(" + i + ").name"); i++) {
+            String name = params.get("itemFilter(" + i + ").name");
+            if (name.equals("MinPrice")) minPrice = Double.parseDouble(params.get("itemFilter(" + i + ").value(0)"));
+            if (name.equals("MaxPrice")) maxPrice = Double.parseDouble(params.get("itemFilter(" + i + ").value(0)"));
+        }
+        String sortOrder = params.getOrDefault("sortOrder", "BestMatch");
+        boolean isNewestFirst = sortOrder.equals(isCompleted ? "EndTimeSoonest" : "StartTimeNewest");
+        int from = (page - 1) * perPage;
+        int to = page * perPage;
+
+        StringBuilder items = new StringBuilder();
+        String title = gson.toJson(query);
+        int total = 0;
+        for (int i = 0; i < allItems; i++) {
+            long itemId = firstId + (isNewestFirst ? allItems - 1 - i : i);
+            Random random = new Random(itemId * 0x9E3779B97F4A7C15L); //Sequential seeds give close first values
+            double price = Math.round((1 + random.nextDouble() * 199) * 100) / 100.0;
+            if (price < minPrice || price > maxPrice) continue;
+            if (total++ < from || total > to) continue;
+            String sellingState = !isCompleted ? "Active" : random.nextInt(3) == 0 ? "EndedWithoutSales" : "EndedWithSales";
+            if (items.length() > 0) items.append(',');
+            items.append("{\"itemId\":[\"").append(itemId).append("\"],\"title\":[").append(title)
+                    .append("],\"globalId\":[\"EBAY-US\"],\"viewItemURL\":[\"https://www.ebay.com/itm/").append(itemId)
+                    .append("\"],\"sellingStatus\":[{\"currentPrice\":[{\"@currencyId\":\"USD\",\"__value__\":\"")
+                    .append(String.format(Locale.US, "%.2f", price))
+                    .append("\"}],\"sellingState\":[\"").append(sellingState)
+                    .append("\"]}],\"condition\":[{\"conditionId\":[\"3000\"],\"conditionDisplayName\":[\"Used\"]}]}");
+        }
+        from = Math.min(from, total);
+        to = Math.min(to, total);
+        return "{\"" + operation + "Response\":[{\"ack\":[\"Success\"],\"version\":[\"1.13.0\"],"
+                + "\"searchResult\":[{\"@count\":\"" + (to - from) + "\",\"item\":[" + items + "]}],"
+                + "\"paginationOutput\":[{\"pageNumber\":[\"" + page + "\"],\"entriesPerPage\":[\"" + perPage + "\"],"
+                + "\"totalPages\":[\"" + ((total + perPage - 1) / perPage) + "\"],\"totalEntries\":[\"" + total + "\"]}],"
+                + "\"itemSearchURL\":[\"https://www.ebay.com/sch/i.html?_nkw=" + encode(query) + "\"]}]}";
+    }
+
+    private static String categoryResponse(String categoryId) {
+        String id = categoryId != null ? categoryId : "-1";
+        StringBuilder categories = new StringBuilder("{\"CategoryID\":\"" + id + "\",\"CategoryLevel\":1,\"CategoryName\":\"Category "
+                + id + "\",\"CategoryParentID\":\"-1\",\"LeafCategory\":false}");
+        for (int i = 1; i <= 8; i++) {
+            categories.append(",{\"CategoryID\":\"").append(id).append(i).append("\",\"CategoryLevel\":2,\"CategoryName\":\"Subcategory ")
+                    .append(i).append("\",\"CategoryParentID\":\"").append(id).append("\",\"LeafCategory\":true}");
+        }
+        return "{\"Ack\":\"Success\",\"Version\":\"1113\",\"CategoryArray\":{\"Category\":[" + categories + "]},\"CategoryCount\":9}";
+    }
+
+    //Four of five barcodes are found
+    private static String discogsResponse(String barcode) {
+        Random random = new Random(barcode != null ? barcode.hashCode() : 0);
+        if (random.nextInt(5) == 0) {
+            return "{\"pagination\":{\"page\":1,\"pages\":0,\"per_page\":50,\"items\":0,\"urls\":{}},\"results\":[]}";
+        }
+        int id = 1000000 + random.nextInt(9000000);
+        return "{\"pagination\":{\"page\":1,\"pages\":1,\"per_page\":50,\"items\":1,\"urls\":{}},\"results\":[{\"country\":\"UK\","
+                + "\"year\":\"" + (1960 + random.nextInt(60)) + "\",\"format\":[\"Vinyl\",\"LP\",\"Album\"],\"label\":[\"Harvest\"],"
+                + "\"type\":\"release\",\"genre\":[\"Rock\"],\"style\":[\"Prog Rock\"],\"id\":" + id + ",\"barcode\":[" + gson.toJson(barcode)
+                + "],\"title\":\"Artist " + random.nextInt(1000) + " - Release " + id + "\",\"resource_url\":\"https://api.discogs.com/releases/"
+                + id + "\"}]}";
+    }
+
+    private static void respond(HttpExchange exchange, int code, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) return params;
+        try {
+            for (String pair : rawQuery.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq < 0) continue;
+                params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"), URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        return params;
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getFindingRequests() {
+        return findingRequests.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    //Time from reading of the request until the response is sent, in millis
+    public long getLatencyPercentile(double percentile) {
+        return latencies.getPercentile(percentile);
+    }
+
+    private enum Api {FINDING, SHOPPING, DISCOGS}
+}
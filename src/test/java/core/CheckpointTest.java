@@ -0,0 +1,126 @@
+package core;
+
+import core.entities.Result;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CheckpointTest {
+
+    private static final ItemsSeeker.CallType ACTIVE = ItemsSeeker.CallType.ACTIVE;
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("checkpoint", ".jsonl");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void runIsReadBack() throws IOException {
+        Checkpoint checkpoint = Checkpoint.create(file);
+        checkpoint.writeRun(new Checkpoint.RunRecord(Arrays.asList("lego", "duplo"), ItemsSeeker.Condition.USED, "220", 500, 2000));
+        checkpoint.close();
+
+        Checkpoint resumed = Checkpoint.open(file);
+        assertTrue(resumed.isResumed());
+        Checkpoint.RunRecord run = resumed.readRun();
+        assertEquals(Arrays.asList("lego", "duplo"), run.queries);
+        assertEquals(ItemsSeeker.Condition.USED, run.condition);
+        assertEquals("220", run.categoryId);
+        assertEquals(500, run.itemsLimit);
+        assertEquals(2000, run.partitionThreshold);
+    }
+
+    @Test
+    public void pagesAreReplayedInOrder() throws IOException {
+        PriceBand band = new PriceBand(1000, 1999);
+        Checkpoint checkpoint = Checkpoint.create(file);
+        checkpoint.writeRun(new Checkpoint.RunRecord(Arrays.asList("lego"), ItemsSeeker.Condition.ALL, null, 1000, 0));
+        checkpoint.writePage(new PageRequest("lego", ACTIVE, 1), PagePlannerTest.page("lego", 300, 0, 100));
+        checkpoint.writePage(new PageRequest("lego", ACTIVE, band, 2), PagePlannerTest.page("lego", 300, 100, 50));
+        checkpoint.close();
+
+        List<Checkpoint.PageRecord> records = replay(Checkpoint.open(file));
+        assertEquals(2, records.size());
+
+        PageRequest first = records.get(0).toPageRequest();
+        assertEquals("lego", first.getQuery());
+        assertEquals(ACTIVE, first.getCallType());
+        assertTrue(first.getBand().isAll());
+        assertEquals(1, first.getPage());
+
+        PageRequest second = records.get(1).toPageRequest();
+        assertEquals(band, second.getBand());
+        assertEquals(new PageRequest("lego", ACTIVE, band, 2).getKey(), second.getKey());
+        Result result = records.get(1).toResult();
+        assertEquals(300, result.getActiveItemsTotal());
+        assertEquals(50, result.getItems().size());
+        assertEquals("100100", result.getItems().get(0).getItemId());
+        assertTrue(result.getIsSuccess());
+    }
+
+    @Test
+    public void replayStopsAtBrokenLine() throws IOException {
+        Checkpoint checkpoint = Checkpoint.create(file);
+        checkpoint.writeRun(new Checkpoint.RunRecord(Arrays.asList("lego"), ItemsSeeker.Condition.ALL, null, 1000, 0));
+        checkpoint.writePage(new PageRequest("lego", ACTIVE, 1), PagePlannerTest.page("lego", 300, 0, 100));
+        checkpoint.writePage(new PageRequest("lego", ACTIVE, 2), PagePlannerTest.page("lego", 300, 100, 100));
+        checkpoint.close();
+        //Run stopped while the page was written
+        Files.write(file, "{\"query\":\"lego\",\"callType\":\"ACT".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        List<Checkpoint.PageRecord> records = replay(Checkpoint.open(file));
+        assertEquals(2, records.size());
+        assertEquals(2, records.get(1).toPageRequest().getPage());
+    }
+
+    @Test
+    public void replayedPagesRestoreQueryState() throws IOException {
+        ItemsSeeker seeker = new ItemsSeeker(new ArrayList<>(), "test", ItemsSeeker.Condition.ALL, null);
+        seeker.setItemsLimit(1000);
+        Checkpoint checkpoint = Checkpoint.create(file);
+        checkpoint.writeRun(new Checkpoint.RunRecord(Arrays.asList("lego"), ItemsSeeker.Condition.ALL, null, 1000, 0));
+        checkpoint.writePage(new PageRequest("lego", ACTIVE, 1), PagePlannerTest.page("lego", 250, 0, 100));
+        checkpoint.writePage(new PageRequest("lego", ACTIVE, 3), PagePlannerTest.page("lego", 250, 200, 50));
+        checkpoint.close();
+
+        QueryState state = new QueryState("lego", seeker.getItemsLimit(), Result.ItemsStorage.OBJECTS, null, null);
+        List<PageRequest> planned = new ArrayList<>();
+        for (Checkpoint.PageRecord record : replay(Checkpoint.open(file)))
+            planned.addAll(seeker.mergePage(state, record.toPageRequest(), record.toResult()));
+        assertEquals(2, planned.size()); //Planned by the first page, only page 2 is missing
+        assertFalse(state.isPhaseComplete());
+        assertTrue(seeker.mergePage(state, new PageRequest("lego", ACTIVE, 2), PagePlannerTest.page("lego", 250, 100, 100)).isEmpty());
+        assertTrue(state.isPhaseComplete());
+        assertEquals(250, state.getResult().getActiveItemsFound());
+    }
+
+    @Test(expected = IOException.class)
+    public void missingCheckpointIsNotOpened() throws IOException {
+        Files.delete(file);
+        Checkpoint.open(file);
+    }
+
+    private static List<Checkpoint.PageRecord> replay(Checkpoint checkpoint) throws IOException {
+        List<Checkpoint.PageRecord> records = new ArrayList<>();
+        checkpoint.replay(records::add);
+        return records;
+    }
+}
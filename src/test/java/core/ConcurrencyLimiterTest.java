@@ -0,0 +1,71 @@
+package core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void startsAtMaxLimit() {
+        assertEquals(16, new ConcurrencyLimiter("test", 1, 16).getLimit());
+    }
+
+    @Test
+    public void jitteryLatencyGrowsLimitToMax() {
+        for (int[] latency : new int[][]{{5, 20}, {80, 400}}) {
+            ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 16);
+            for (int i = 0; i < 10; i++) limiter.onDropped();
+            assertEquals(1, limiter.getLimit());
+            Random random = new Random(1);
+            int lowest = 16;
+            for (int i = 0; i < 1000; i++) {
+                limiter.onSuccess(latency[0] + random.nextInt(latency[1] - latency[0] + 1));
+                if (i > 300) lowest = Math.min(lowest, limiter.getLimit());
+            }
+            assertEquals(16, limiter.getLimit());
+            assertEquals(16, lowest); //Jitter doesn't cut the limit once it is reached
+        }
+    }
+
+    @Test
+    public void singleSlowResponseDoesntCutLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 16);
+        for (int i = 0; i < 100; i++) limiter.onSuccess(i % 16 == 0 ? 2000 : 10);
+        assertEquals(16, limiter.getLimit());
+    }
+
+    @Test
+    public void sustainedSlowdownCutsLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 16);
+        for (int i = 0; i < 64; i++) limiter.onSuccess(10);
+        for (int i = 0; i < 16; i++) limiter.onSuccess(100);
+        assertEquals(12, limiter.getLimit());
+        //Slower latency becomes the usual one, so the limit grows again
+        for (int i = 0; i < 1000; i++) limiter.onSuccess(100);
+        assertEquals(16, limiter.getLimit());
+    }
+
+    @Test
+    public void droppedRequestCutsLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 2, 16);
+        limiter.onDropped();
+        assertEquals(12, limiter.getLimit());
+        for (int i = 0; i < 20; i++) limiter.onDropped();
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void boundsClampLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 16);
+        limiter.setBounds(1, 4);
+        assertEquals(4, limiter.getLimit()); //No latency measured yet
+        for (int i = 0; i < 10; i++) limiter.onSuccess(10);
+        limiter.setBounds(1, 8);
+        assertEquals(4, limiter.getLimit());
+        limiter.setBounds(6, 8);
+        assertEquals(6, limiter.getLimit());
+    }
+}
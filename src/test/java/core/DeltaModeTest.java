@@ -0,0 +1,94 @@
+package core;
+
+import core.entities.Item;
+import core.entities.Result;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DeltaModeTest {
+
+    private static final ItemsSeeker.CallType ACTIVE = ItemsSeeker.CallType.ACTIVE;
+
+    private ItemsSeeker seeker;
+
+    @Before
+    public void setUp() {
+        seeker = new ItemsSeeker(new ArrayList<>(), "test", ItemsSeeker.Condition.ALL, null);
+        seeker.setItemsLimit(1000);
+    }
+
+    @Test
+    public void pagesAreLoadedUntilKnownItem() {
+        QueryState state = newState(previous(150, 250, "Active"));
+        List<PageRequest> next = seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), PagePlannerTest.page("lego", 500, 0, 100));
+        assertEquals(1, next.size()); //Pages are loaded one by one
+        assertEquals(2, next.get(0).getPage());
+        next = seeker.mergePage(state, next.get(0), PagePlannerTest.page("lego", 500, 100, 100));
+        assertTrue(next.isEmpty()); //Page has items of the previous run
+        assertTrue(state.isPhaseComplete());
+        assertEquals(200, state.getResult().getActiveItemsFound());
+        assertEquals(500, state.getResult().getActiveItemsTotal());
+    }
+
+    @Test
+    public void pagesAreLoadedUntilLastPage() {
+        QueryState state = newState(previous(1000, 1100, "Active"));
+        List<PageRequest> next = seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), PagePlannerTest.page("lego", 150, 0, 100));
+        assertEquals(1, next.size());
+        assertTrue(seeker.mergePage(state, next.get(0), PagePlannerTest.page("lego", 150, 100, 50)).isEmpty());
+        assertTrue(state.isPhaseComplete());
+    }
+
+    @Test
+    public void completeItemsDontStopActivePhase() {
+        QueryState state = newState(previous(0, 100, "EndedWithSales"));
+        List<PageRequest> next = seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), PagePlannerTest.page("lego", 500, 0, 100));
+        assertEquals(1, next.size());
+        assertFalse(state.isPhaseComplete());
+    }
+
+    @Test
+    public void queryWithoutPreviousResultIsPlannedAtOnce() {
+        QueryState state = newState(null);
+        List<PageRequest> next = seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), PagePlannerTest.page("lego", 500, 0, 100));
+        assertEquals(4, next.size());
+    }
+
+    @Test
+    public void itemsNotFoundAgainAreAddedFromPreviousRun() {
+        QueryState state = newState(previous(50, 130, "Active"));
+        assertTrue(seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), PagePlannerTest.page("lego", 500, 0, 100)).isEmpty());
+        state.mergePrevious();
+        assertEquals(130, state.getResult().getActiveItemsFound()); //100 new and found again, 30 older
+    }
+
+    @Test
+    public void previousItemsAreAddedUpToLimit() {
+        seeker.setItemsLimit(120);
+        QueryState state = newState(previous(50, 200, "Active"));
+        seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), PagePlannerTest.page("lego", 500, 0, 100));
+        state.mergePrevious();
+        assertEquals(120, state.getResult().getActiveItemsFound());
+    }
+
+    private QueryState newState(DeltaStore.Record previous) {
+        QueryState state = new QueryState("lego", seeker.getItemsLimit(), Result.ItemsStorage.OBJECTS, null, null);
+        state.setPrevious(previous);
+        return state;
+    }
+
+    //Stored result with items of ids from firstId to lastId (excluded), the same ids as of PagePlannerTest.page()
+    private static DeltaStore.Record previous(int firstId, int lastId, String sellingStatus) {
+        Result result = new Result("lego");
+        List<Item> items = new ArrayList<>();
+        for (int id = firstId; id < lastId; id++)
+            items.add(new Item(String.valueOf(100000 + id), 1 + id, sellingStatus, "https://www.ebay.com/itm/" + (100000 + id)));
+        result.addItems(items);
+        return new DeltaStore.Record(result, ItemsSeeker.Condition.ALL, null);
+    }
+}
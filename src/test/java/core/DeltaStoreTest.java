@@ -0,0 +1,123 @@
+package core;
+
+import core.entities.Item;
+import core.entities.Result;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DeltaStoreTest {
+
+    private Path dir;
+    private DeltaStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("delta-store");
+        store = new DeltaStore(dir);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void resultIsReadBack() throws IOException {
+        store.write(result("Lego Technic"), ItemsSeeker.Condition.USED, "220");
+        DeltaStore.Record record = store.read("Lego Technic", ItemsSeeker.Condition.USED, "220");
+        assertNotNull(record);
+        assertEquals("Lego Technic", record.query);
+        assertEquals(250, record.activeItemsTotal);
+        assertEquals(40, record.completeItemsTotal);
+        assertEquals(3, record.getItems().size());
+        assertEquals("100001", record.getItems().get(0).getItemId());
+        assertEquals(10.5, record.getItems().get(0).getPrice(), 0.001);
+    }
+
+    @Test
+    public void equivalentQueryReadsTheSameRecord() throws IOException {
+        store.write(result("Lego Technic"), ItemsSeeker.Condition.ALL, null);
+        assertNotNull(store.read("technic, LEGO", ItemsSeeker.Condition.ALL, null));
+        assertNull(store.read("lego duplo", ItemsSeeker.Condition.ALL, null));
+    }
+
+    @Test
+    public void otherFiltersAreNotRead() throws IOException {
+        store.write(result("lego"), ItemsSeeker.Condition.USED, "220");
+        assertNull(store.read("lego", ItemsSeeker.Condition.NEW, "220"));
+        assertNull(store.read("lego", ItemsSeeker.Condition.USED, null));
+        assertNull(store.read("lego", ItemsSeeker.Condition.USED, "19006"));
+    }
+
+    @Test
+    public void resultIsReplaced() throws IOException {
+        store.write(result("lego"), ItemsSeeker.Condition.ALL, null);
+        Result newer = new Result("lego");
+        newer.addItems(Arrays.asList(new Item("100009", 1, "Active", "https://www.ebay.com/itm/100009")));
+        store.write(newer, ItemsSeeker.Condition.ALL, null);
+        assertEquals(1, store.read("lego", ItemsSeeker.Condition.ALL, null).getItems().size());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count()); //No temporary files are left
+        }
+    }
+
+    @Test
+    public void fileOfOtherQueryIsNotRead() throws IOException {
+        store.write(result("lego"), ItemsSeeker.Condition.ALL, null);
+        Path lego = files().get(0);
+        store.write(result("duplo"), ItemsSeeker.Condition.ALL, null);
+        List<Path> files = files();
+        assertEquals(2, files.size());
+        files.remove(lego);
+        //Same file name for both queries would end like this
+        Files.copy(lego, files.get(0), StandardCopyOption.REPLACE_EXISTING);
+        assertNull(store.read("duplo", ItemsSeeker.Condition.ALL, null));
+        assertNotNull(store.read("lego", ItemsSeeker.Condition.ALL, null));
+    }
+
+    @Test
+    public void idsAreSplitByItemType() throws IOException {
+        store.write(result("lego"), ItemsSeeker.Condition.ALL, null);
+        DeltaStore.Record record = store.read("lego", ItemsSeeker.Condition.ALL, null);
+        LongHashSet active = record.getIds(false);
+        LongHashSet complete = record.getIds(true);
+        assertEquals(2, active.size());
+        assertTrue(active.contains(100001));
+        assertTrue(active.contains(100002));
+        assertEquals(1, complete.size());
+        assertTrue(complete.contains(100003));
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private static Result result(String query) {
+        Result result = new Result(query);
+        result.setActiveItemsTotal(250);
+        result.setCompleteItemsTotal(40);
+        result.addItems(Arrays.asList(
+                new Item("100001", 10.5, "Active", "https://www.ebay.com/itm/100001"),
+                new Item("100002", 12, "Active", "https://www.ebay.com/itm/100002"),
+                new Item("100003", 9, "EndedWithSales", "https://www.ebay.com/itm/100003")));
+        return result;
+    }
+}
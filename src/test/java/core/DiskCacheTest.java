@@ -0,0 +1,216 @@
+package core;
+
+import okhttp3.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DiskCacheTest {
+
+    private static final String BASE = "http://localhost/services/search/FindingService/v1?OPERATION-NAME=findItemsAdvanced&SECURITY-APPNAME=test&keywords=";
+
+    private Path dir;
+    private DiskCache cache;
+    private final AtomicInteger networkCalls = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("disk-cache");
+        cache = new DiskCache(dir, 10 * 1024 * 1024);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cache.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void repeatedRequestIsServedFromCache() throws IOException {
+        assertEquals("lego", get("lego"));
+        Response response = call(url("lego"));
+        assertTrue(DiskCache.isCacheHit(response));
+        assertEquals("lego", response.body().string());
+        assertEquals(1, networkCalls.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void keyIgnoresAppIdAndParametersOrder() {
+        assertEquals(DiskCache.getKey(HttpUrl.get(BASE + "lego&paginationInput.pageNumber=2")),
+                DiskCache.getKey(HttpUrl.get("http://localhost/services/search/FindingService/v1?paginationInput.pageNumber=2"
+                        + "&keywords=lego&SECURITY-APPNAME=other&OPERATION-NAME=findItemsAdvanced")));
+    }
+
+    @Test
+    public void sortedPagesAreNotCached() throws IOException {
+        HttpUrl url = HttpUrl.get(BASE + "lego&sortOrder=StartTimeNewest");
+        call(url).close();
+        assertFalse(DiskCache.isCacheHit(call(url)));
+        assertFalse(cache.contains(url));
+        assertEquals(2, networkCalls.get());
+    }
+
+    @Test
+    public void entriesAreLoadedAfterReopen() throws IOException {
+        get("lego");
+        get("duplo");
+        long size = cache.getSize();
+        reopen();
+        assertTrue(cache.contains(url("lego")));
+        assertTrue(cache.contains(url("duplo")));
+        assertEquals(size, cache.getSize());
+        assertEquals("duplo", get("duplo"));
+        assertEquals(2, networkCalls.get());
+    }
+
+    @Test
+    public void invalidatedEntryIsNotLoaded() throws IOException {
+        get("lego");
+        get("duplo");
+        cache.invalidate(url("lego"));
+        assertFalse(cache.contains(url("lego")));
+        reopen();
+        assertFalse(cache.contains(url("lego")));
+        assertTrue(cache.contains(url("duplo")));
+    }
+
+    @Test
+    public void partialRecordIsCutOff() throws IOException {
+        get("lego");
+        cache.close();
+        Path segment = segments().get(0);
+        long validSize = Files.size(segment);
+        Files.write(segment, new byte[]{0, 40, 'h', 't', 't', 'p'}, StandardOpenOption.APPEND); //Run stopped while writing
+        reopen();
+        assertEquals(validSize, Files.size(segment));
+        assertTrue(cache.contains(url("lego")));
+        get("duplo");
+        reopen();
+        assertTrue(cache.contains(url("lego")));
+        assertTrue(cache.contains(url("duplo")));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvicted() throws IOException {
+        get("a", 4000);
+        long entrySize = cache.getSize();
+        cache.close();
+        cache = new DiskCache(dir, entrySize * 5 / 2);
+        get("b", 4000);
+        get("a", 4000); //Hit makes "b" the oldest entry
+        get("c", 4000);
+        assertTrue(cache.contains(url("a")));
+        assertFalse(cache.contains(url("b")));
+        assertTrue(cache.contains(url("c")));
+        assertTrue(cache.getSize() <= entrySize * 5 / 2);
+    }
+
+    @Test
+    public void evictedEntryIsNotLoadedAfterReopen() throws IOException {
+        get("a", 4000);
+        long entrySize = cache.getSize();
+        cache.close();
+        cache = new DiskCache(dir, entrySize * 5 / 2);
+        get("b", 4000);
+        get("c", 4000); //"a" is evicted
+        long size = cache.getSize();
+        cache.close();
+        cache = new DiskCache(dir, entrySize * 10);
+        assertFalse(cache.contains(url("a")));
+        assertTrue(cache.contains(url("b")));
+        assertTrue(cache.contains(url("c")));
+        assertEquals(size, cache.getSize());
+    }
+
+    @Test
+    public void diskUseIsBounded() throws IOException {
+        get("a", 4000);
+        long entrySize = cache.getSize();
+        cache.close();
+        long maxSize = entrySize * 4;
+        cache = new DiskCache(dir, maxSize);
+        cache.setTtl("findItemsAdvanced", 1);
+        for (int i = 0; i < 200; i++) {
+            get("k" + i % 20, 4000);
+            long diskSize = 0;
+            for (Path segment : segments()) diskSize += Files.size(segment);
+            assertTrue(diskSize <= 2 * maxSize + entrySize);
+        }
+        long size = cache.getSize();
+        cache.close();
+        cache = new DiskCache(dir, maxSize);
+        assertEquals(size, cache.getSize());
+        assertTrue(cache.contains(url("k19")));
+        assertFalse(cache.contains(url("k0")));
+    }
+
+    private void reopen() throws IOException {
+        cache.close();
+        cache = new DiskCache(dir, 10 * 1024 * 1024);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static HttpUrl url(String keywords) {
+        return HttpUrl.get(BASE + keywords);
+    }
+
+    private String get(String keywords) throws IOException {
+        try (Response response = call(url(keywords))) {
+            return response.body().string();
+        }
+    }
+
+    //Body of random characters, so it is about the same size when gzipped
+    private void get(String keywords, int bodyLength) throws IOException {
+        call(url(keywords), bodyLength).close();
+    }
+
+    private Response call(HttpUrl url) throws IOException {
+        return call(url, 0);
+    }
+
+    //Requests end in a stub interceptor, so the network is never used
+    private Response call(HttpUrl url, int bodyLength) throws IOException {
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(cache)
+                .addInterceptor(chain -> {
+                    networkCalls.incrementAndGet();
+                    String keywords = chain.request().url().queryParameter("keywords");
+                    StringBuilder body = new StringBuilder(keywords);
+                    Random random = new Random(keywords.hashCode());
+                    while (body.length() < bodyLength) body.append((char) ('a' + random.nextInt(26)));
+                    return new Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create(body.toString(), MediaType.parse("application/json")))
+                            .build();
+                })
+                .build();
+        return client.newCall(new Request.Builder().url(url).build()).execute();
+    }
+}
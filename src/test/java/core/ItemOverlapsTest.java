@@ -0,0 +1,87 @@
+package core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ItemOverlapsTest {
+
+    @Test
+    public void queryIndexIsStable() {
+        ItemOverlaps overlaps = new ItemOverlaps();
+        int lego = overlaps.getQueryIndex("lego");
+        int duplo = overlaps.getQueryIndex("duplo");
+        assertNotEquals(lego, duplo);
+        assertEquals(lego, overlaps.getQueryIndex("lego"));
+    }
+
+    @Test
+    public void sharedItemsAreCountedByPair() {
+        ItemOverlaps overlaps = new ItemOverlaps();
+        int lego = overlaps.getQueryIndex("lego");
+        int duplo = overlaps.getQueryIndex("duplo");
+        for (long id = 1; id <= 10; id++) assertFalse(overlaps.add(lego, id));
+        for (long id = 6; id <= 20; id++) assertEquals(id <= 10, overlaps.add(duplo, id));
+        assertEquals(20, overlaps.getUniqueItems());
+        assertEquals(5, overlaps.getSharedItems());
+        assertEquals(5, overlaps.getOverlap("lego", "duplo"));
+        assertEquals(5, overlaps.getOverlap("duplo", "lego"));
+        assertEquals(0, overlaps.getOverlap("lego", "lego"));
+        assertEquals(0, overlaps.getOverlap("lego", "technic"));
+    }
+
+    @Test
+    public void itemRepeatedByTheSameQueryIsNotShared() {
+        ItemOverlaps overlaps = new ItemOverlaps();
+        int lego = overlaps.getQueryIndex("lego");
+        int duplo = overlaps.getQueryIndex("duplo");
+        overlaps.add(lego, 1);
+        assertFalse(overlaps.add(lego, 1));
+        overlaps.add(duplo, 1);
+        assertFalse(overlaps.add(duplo, 1));
+        assertEquals(1, overlaps.getUniqueItems());
+        assertEquals(1, overlaps.getSharedItems());
+        assertEquals(1, overlaps.getOverlap("lego", "duplo"));
+    }
+
+    @Test
+    public void overlapIsCountedWithAllOwners() {
+        ItemOverlaps overlaps = new ItemOverlaps();
+        int a = overlaps.getQueryIndex("a");
+        int b = overlaps.getQueryIndex("b");
+        int c = overlaps.getQueryIndex("c");
+        overlaps.add(a, 7);
+        overlaps.add(b, 7);
+        overlaps.add(c, 7);
+        assertEquals(1, overlaps.getOverlap("a", "b"));
+        assertEquals(1, overlaps.getOverlap("a", "c"));
+        assertEquals(1, overlaps.getOverlap("b", "c"));
+        Map<String, Integer> ofC = overlaps.getOverlaps("c");
+        assertEquals(2, ofC.size());
+        assertEquals(Integer.valueOf(1), ofC.get("a"));
+        assertEquals(Integer.valueOf(1), ofC.get("b"));
+        assertTrue(overlaps.getOverlaps("d").isEmpty());
+    }
+
+    @Test
+    public void concurrentQueriesAreCountedExactly() throws InterruptedException {
+        ItemOverlaps overlaps = new ItemOverlaps();
+        List<Thread> threads = new ArrayList<>();
+        for (int q = 0; q < 8; q++) {
+            int query = overlaps.getQueryIndex("query " + q);
+            Thread thread = new Thread(() -> {
+                for (long id = 0; id < 20000; id++) overlaps.add(query, id);
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) thread.join();
+        assertEquals(20000, overlaps.getUniqueItems());
+        assertEquals(7 * 20000, overlaps.getSharedItems());
+        assertEquals(20000, overlaps.getOverlap("query 0", "query 7"));
+    }
+}
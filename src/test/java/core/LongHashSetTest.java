@@ -0,0 +1,71 @@
+package core;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LongHashSetTest {
+
+    @Test
+    public void repeatedKeyIsNotAdded() {
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.add(42));
+        assertFalse(set.add(42));
+        assertTrue(set.contains(42));
+        assertFalse(set.contains(43));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void zeroIsKept() {
+        LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void setGrowsBeyondExpectedSize() {
+        LongHashSet set = new LongHashSet(4);
+        for (long id = 1; id <= 100000; id++) assertTrue(set.add(110000000000L + id));
+        assertEquals(100000, set.size());
+        for (long id = 1; id <= 100000; id++) assertTrue(set.contains(110000000000L + id));
+        assertFalse(set.contains(110000000000L));
+        assertFalse(set.contains(110000100001L));
+    }
+
+    @Test
+    public void matchesHashSet() {
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 50000; i++) {
+            long key = random.nextInt(20000) - 10000;
+            assertEquals(expected.add(key), set.add(key));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long key = -10000; key < 10000; key++) assertEquals(expected.contains(key), set.contains(key));
+    }
+
+    @Test
+    public void numericItemIdIsKeptAsIs() {
+        assertEquals(123456789012L, LongHashSet.itemKey("123456789012"));
+        assertEquals(0, LongHashSet.itemKey("0"));
+    }
+
+    @Test
+    public void otherItemIdsDontCollideWithNumericOnes() {
+        long key = LongHashSet.itemKey("v1|123456789012|0");
+        assertTrue(key < 0);
+        assertTrue(LongHashSet.itemKey("1234567890123456789") < 0); //Too long to be parsed
+        assertTrue(LongHashSet.itemKey("") < 0);
+        assertEquals(key, LongHashSet.itemKey("v1|123456789012|0"));
+        assertNotEquals(key, LongHashSet.itemKey("v1|123456789012|1"));
+    }
+}
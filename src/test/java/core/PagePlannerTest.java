@@ -0,0 +1,138 @@
+package core;
+
+import core.entities.Item;
+import core.entities.Result;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PagePlannerTest {
+
+    private static final ItemsSeeker.CallType ACTIVE = ItemsSeeker.CallType.ACTIVE;
+
+    private ItemsSeeker seeker;
+
+    @Before
+    public void setUp() {
+        seeker = new ItemsSeeker(new ArrayList<>(), "test", ItemsSeeker.Condition.ALL, null);
+    }
+
+    @Test
+    public void firstPageQueuesRemainingPagesAtOnce() {
+        seeker.setItemsLimit(1000);
+        QueryState state = newState("lego");
+        List<PageRequest> next = seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), page("lego", 450, 0, 100));
+        assertEquals(4, next.size());
+        for (int i = 0; i < next.size(); i++) {
+            assertEquals(i + 2, next.get(i).getPage());
+            assertEquals(ACTIVE, next.get(i).getCallType());
+            assertTrue(next.get(i).getBand().isAll());
+        }
+        assertFalse(state.isPhaseComplete());
+    }
+
+    @Test
+    public void itemsLimitCapsPagesCount() {
+        seeker.setItemsLimit(250);
+        QueryState state = newState("lego");
+        List<PageRequest> next = seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), page("lego", 5000, 0, 100));
+        assertEquals(2, next.size());
+    }
+
+    @Test
+    public void smallLimitIsLoadedByOnePage() {
+        seeker.setItemsLimit(30);
+        QueryState state = newState("lego");
+        List<PageRequest> next = seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), page("lego", 5000, 0, 30));
+        assertTrue(next.isEmpty());
+        assertTrue(state.isPhaseComplete());
+        assertEquals(30, state.getResult().getActiveItemsFound());
+    }
+
+    @Test
+    public void pagesCountIsCappedByApiLimit() {
+        seeker.setItemsLimit(50000);
+        QueryState state = newState("lego");
+        List<PageRequest> next = seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), page("lego", 50000, 0, 100));
+        assertEquals(99, next.size());
+        assertEquals(100, next.get(98).getPage());
+    }
+
+    @Test
+    public void queryWithoutItemsCompletesPhase() {
+        seeker.setItemsLimit(1000);
+        QueryState state = newState("nothing");
+        List<PageRequest> next = seeker.mergePage(state, new PageRequest("nothing", ACTIVE, 1), page("nothing", 0, 0, 0));
+        assertTrue(next.isEmpty());
+        assertTrue(state.isPhaseComplete());
+    }
+
+    @Test
+    public void laterPagesCompletePhaseInAnyOrder() {
+        seeker.setItemsLimit(1000);
+        QueryState state = newState("lego");
+        seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), page("lego", 300, 0, 100));
+        assertTrue(seeker.mergePage(state, new PageRequest("lego", ACTIVE, 3), page("lego", 300, 200, 100)).isEmpty());
+        assertFalse(state.isPhaseComplete());
+        assertEquals(100, state.getResult().getActiveItemsFound()); //Page 3 waits for page 2
+        assertTrue(seeker.mergePage(state, new PageRequest("lego", ACTIVE, 2), page("lego", 300, 100, 100)).isEmpty());
+        assertTrue(state.isPhaseComplete());
+        assertEquals(300, state.getResult().getActiveItemsFound());
+        assertEquals(300, state.getResult().getActiveItemsTotal());
+    }
+
+    @Test
+    public void repeatedItemsAreDropped() {
+        seeker.setItemsLimit(1000);
+        QueryState state = newState("lego");
+        seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), page("lego", 200, 0, 100));
+        seeker.mergePage(state, new PageRequest("lego", ACTIVE, 2), page("lego", 200, 50, 100)); //Listings shifted between pages
+        assertEquals(150, state.getResult().getActiveItemsFound());
+        assertEquals(50, state.getDuplicates());
+    }
+
+    @Test
+    public void largeQueryIsSplitByPriceBands() {
+        seeker.setItemsLimit(3000);
+        seeker.setPartitionThreshold(1000);
+        QueryState state = newState("lego");
+        List<PageRequest> next = seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), page("lego", 8000, 0, 100));
+        assertEquals(3, next.size());
+        for (PageRequest page : next) {
+            assertFalse(page.getBand().isAll());
+            assertEquals(1, page.getPage());
+            assertEquals(1000, state.getItemsWanted(page.getBand())); //Limit is shared by the bands
+        }
+        assertFalse(state.isPhaseComplete());
+    }
+
+    @Test
+    public void bandsOfQueryWithinLimitLoadAllItems() {
+        seeker.setItemsLimit(5000);
+        seeker.setPartitionThreshold(1000);
+        QueryState state = newState("lego");
+        List<PageRequest> next = seeker.mergePage(state, new PageRequest("lego", ACTIVE, 1), page("lego", 5000, 0, 100));
+        assertEquals(5, next.size());
+        for (PageRequest page : next) assertEquals(5000, state.getItemsWanted(page.getBand()));
+    }
+
+    private QueryState newState(String query) {
+        return new QueryState(query, seeker.getItemsLimit(), Result.ItemsStorage.OBJECTS, null, null);
+    }
+
+    //Page of active items with ids from firstId, prices grow with ids
+    static Result page(String query, int itemsTotal, int firstId, int count) {
+        Result result = new Result(query);
+        result.setActiveItemsTotal(itemsTotal);
+        result.setIsSuccess(true);
+        List<Item> items = new ArrayList<>();
+        for (int id = firstId; id < firstId + count; id++)
+            items.add(new Item(String.valueOf(100000 + id), 1 + id, "Active", "https://www.ebay.com/itm/" + (100000 + id)));
+        result.addItems(items);
+        return result;
+    }
+}
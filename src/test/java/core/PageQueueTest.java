@@ -0,0 +1,104 @@
+package core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PageQueueTest {
+
+    private static final ItemsSeeker.CallType ACTIVE = ItemsSeeker.CallType.ACTIVE;
+    private static final ItemsSeeker.CallType COMPLETED = ItemsSeeker.CallType.COMPLETED;
+
+    @Test
+    public void fifoKeepsQueuedOrder() {
+        PageQueue queue = create(ItemsSeeker.Scheduling.FIFO);
+        queue.addAll(Arrays.asList(page("a", 1), page("a", 2), page("b", 1), page("a", 3)));
+        assertEquals(Arrays.asList("a:1", "a:2", "b:1", "a:3"), pollAll(queue));
+    }
+
+    @Test
+    public void shortestQueryGoesFirst() {
+        PageQueue queue = create(ItemsSeeker.Scheduling.SHORTEST_FIRST);
+        queue.addAll(Arrays.asList(page("a", 1), page("a", 2), page("a", 3), page("b", 1)));
+        queue.add(new PageRequest("c", COMPLETED, 1));
+        assertEquals(Arrays.asList("c:1", "b:1", "a:1", "a:2", "a:3"), pollAll(queue));
+    }
+
+    @Test
+    public void queriesTakeTurns() {
+        PageQueue queue = create(ItemsSeeker.Scheduling.ROUND_ROBIN);
+        queue.addAll(Arrays.asList(page("a", 1), page("a", 2), page("a", 3), page("b", 1), page("b", 2)));
+        assertEquals(Arrays.asList("a:1", "b:1", "a:2", "b:2", "a:3"), pollAll(queue));
+    }
+
+    @Test
+    public void higherPriorityGoesFirst() {
+        for (ItemsSeeker.Scheduling scheduling : ItemsSeeker.Scheduling.values()) {
+            PageQueue queue = PageQueue.create(scheduling, query -> query.equals("c") ? 5 : 0);
+            queue.addAll(Arrays.asList(page("a", 1), page("c", 1), page("b", 1), page("c", 2)));
+            List<String> polled = pollAll(queue);
+            assertEquals(scheduling.name(), Arrays.asList("c:1", "c:2"), polled.subList(0, 2));
+        }
+    }
+
+    @Test
+    public void pageAddedFirstGoesBeforeItsQuery() {
+        PageQueue queue = create(ItemsSeeker.Scheduling.FIFO);
+        queue.addAll(Arrays.asList(page("b", 1), page("a", 2), page("a", 3)));
+        queue.addFirst(page("a", 1));
+        assertEquals(Arrays.asList("a:1", "b:1", "a:2", "a:3"), pollAll(queue)); //Other pages keep their order
+    }
+
+    @Test
+    public void pagesAreRemovedByFilter() {
+        PageQueue queue = create(ItemsSeeker.Scheduling.ROUND_ROBIN);
+        queue.addAll(Arrays.asList(page("a", 1), page("a", 2), page("b", 1), page("b", 2)));
+        queue.removeIf(page -> page.getQuery().equals("a") || page.getPage() == 2);
+        assertEquals(1, queue.size());
+        assertEquals(Collections.singletonList("b:1"), pollAll(queue));
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void newQueryIsStartedByScheduling() {
+        for (ItemsSeeker.Scheduling scheduling : ItemsSeeker.Scheduling.values())
+            assertTrue(create(scheduling).prefersNewQuery(1));
+
+        PageQueue fifo = create(ItemsSeeker.Scheduling.FIFO);
+        fifo.add(page("a", 2));
+        assertFalse(fifo.prefersNewQuery(10));
+
+        PageQueue roundRobin = create(ItemsSeeker.Scheduling.ROUND_ROBIN);
+        roundRobin.add(page("a", 2));
+        assertTrue(roundRobin.prefersNewQuery(2));
+        roundRobin.add(page("b", 2));
+        assertFalse(roundRobin.prefersNewQuery(2)); //Queue is full
+
+        PageQueue shortestFirst = create(ItemsSeeker.Scheduling.SHORTEST_FIRST);
+        shortestFirst.add(page("a", 2));
+        assertFalse(shortestFirst.prefersNewQuery(10)); //Shorter than a new query
+        shortestFirst.addAll(Arrays.asList(page("a", 3), page("a", 4)));
+        assertTrue(shortestFirst.prefersNewQuery(10));
+    }
+
+    private static PageQueue create(ItemsSeeker.Scheduling scheduling) {
+        return PageQueue.create(scheduling, query -> 0);
+    }
+
+    private static PageRequest page(String query, int page) {
+        return new PageRequest(query, ACTIVE, page);
+    }
+
+    private static List<String> pollAll(PageQueue queue) {
+        List<String> polled = new ArrayList<>();
+        PageRequest page;
+        while ((page = queue.poll()) != null) polled.add(page.getQuery() + ":" + page.getPage());
+        return polled;
+    }
+}
@@ -0,0 +1,105 @@
+package core;
+
+import core.entities.Item;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PriceBandTest {
+
+    @Test
+    public void bandsCoverPricesWithoutGaps() {
+        List<PriceBand> bands = PriceBand.ALL.split(sample(1, 100), 4);
+        assertEquals(4, bands.size());
+        assertFalse(bands.get(0).hasMinPrice());
+        assertFalse(bands.get(3).hasMaxPrice());
+        for (int i = 1; i < bands.size(); i++) {
+            PriceBand previous = bands.get(i - 1);
+            PriceBand band = bands.get(i);
+            assertEquals(cents(previous.getMaxPrice()) + 1, cents(band.getMinPrice()));
+        }
+    }
+
+    @Test
+    public void bandsGetAboutTheSameNumberOfItems() {
+        List<Item> sample = sample(1, 100);
+        List<PriceBand> bands = PriceBand.ALL.split(sample, 4);
+        for (PriceBand band : bands) {
+            int count = 0;
+            for (Item item : sample) {
+                long cents = Math.round(item.getPrice() * 100);
+                if (cents >= (band.hasMinPrice() ? cents(band.getMinPrice()) : 0)
+                        && (!band.hasMaxPrice() || cents <= cents(band.getMaxPrice()))) count++;
+            }
+            assertEquals(25, count);
+        }
+    }
+
+    @Test
+    public void sameCutsAreMerged() {
+        List<Item> sample = new ArrayList<>();
+        for (int i = 0; i < 50; i++) sample.add(item(10));
+        sample.addAll(sample(20, 69));
+        List<PriceBand> bands = PriceBand.ALL.split(sample, 4);
+        assertEquals(3, bands.size());
+        assertEquals("$0.00-$19.99", bands.get(0).toString());
+        assertEquals("$20.00-$44.99", bands.get(1).toString());
+        assertEquals("$45.00+", bands.get(2).toString());
+    }
+
+    @Test
+    public void singlePriceIsNotSplit() {
+        List<Item> sample = new ArrayList<>();
+        for (int i = 0; i < 100; i++) sample.add(item(5));
+        assertTrue(PriceBand.ALL.split(sample, 4).isEmpty());
+        assertTrue(PriceBand.ALL.split(new ArrayList<>(), 4).isEmpty());
+    }
+
+    @Test
+    public void subBandStaysWithinBand() {
+        PriceBand band = new PriceBand(1000, 4999);
+        List<PriceBand> bands = band.split(sample(1, 100), 2); //Only prices 10..49 are in the band
+        assertEquals(2, bands.size());
+        assertEquals("10.00", bands.get(0).getMinPrice());
+        assertEquals("49.99", bands.get(1).getMaxPrice());
+        assertEquals("$10.00-$29.99", bands.get(0).toString());
+    }
+
+    @Test
+    public void keyIsParsedBack() {
+        PriceBand band = new PriceBand(1050, 1999);
+        assertEquals("1050-1999", band.getKey());
+        assertEquals(band, PriceBand.parse(band.getKey()));
+        PriceBand open = new PriceBand(2000, Long.MAX_VALUE);
+        assertEquals("2000-", open.getKey());
+        assertEquals(open, PriceBand.parse(open.getKey()));
+        assertSame(PriceBand.ALL, PriceBand.parse(null));
+        assertTrue(PriceBand.parse(PriceBand.ALL.getKey()).isAll());
+    }
+
+    @Test
+    public void pricesAreFormattedInDollars() {
+        PriceBand band = new PriceBand(5, 1000);
+        assertEquals("0.05", band.getMinPrice());
+        assertEquals("10.00", band.getMaxPrice());
+        assertEquals("$0.05-$10.00", band.toString());
+        assertEquals("$0.00+", PriceBand.ALL.toString());
+    }
+
+    private static List<Item> sample(int from, int to) {
+        List<Item> sample = new ArrayList<>();
+        for (int price = from; price <= to; price++) sample.add(item(price));
+        return sample;
+    }
+
+    private static Item item(double price) {
+        return new Item(String.valueOf(100000 + (int) (price * 100)), price, "Active", "https://www.ebay.com/itm/1");
+    }
+
+    private static long cents(String price) {
+        return Math.round(Double.parseDouble(price) * 100);
+    }
+}
@@ -0,0 +1,44 @@
+package core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueryCanonicalizerTest {
+
+    @Test
+    public void caseAndSpacesAreIgnored() {
+        assertEquals("lego technic", QueryCanonicalizer.canonicalize("  LEGO\tTechnic\u00A0 "));
+    }
+
+    @Test
+    public void wordOrderIsIgnored() {
+        assertEquals(QueryCanonicalizer.canonicalize("technic lego"), QueryCanonicalizer.canonicalize("Lego Technic"));
+    }
+
+    @Test
+    public void edgePunctuationIsStripped() {
+        assertEquals("lego technic", QueryCanonicalizer.canonicalize("lego, technic!"));
+        assertEquals("4.5 lego", QueryCanonicalizer.canonicalize("lego 4.5"));
+    }
+
+    @Test
+    public void standaloneSymbolsAreNotWords() {
+        assertEquals("lego technic", QueryCanonicalizer.canonicalize("lego & technic"));
+        assertEquals("lego technic", QueryCanonicalizer.canonicalize("lego - technic"));
+    }
+
+    @Test
+    public void queriesWithOperatorsKeepWordOrder() {
+        assertEquals("lego -duplo", QueryCanonicalizer.canonicalize("LEGO  -duplo"));
+        assertEquals("\"star wars\" lego", QueryCanonicalizer.canonicalize("\"Star Wars\" lego"));
+        assertEquals("(lego,duplo) set", QueryCanonicalizer.canonicalize("(lego,duplo) set"));
+        assertEquals("lego*", QueryCanonicalizer.canonicalize("Lego*"));
+        assertNotEquals(QueryCanonicalizer.canonicalize("lego -duplo"), QueryCanonicalizer.canonicalize("-duplo lego"));
+    }
+
+    @Test
+    public void differentWordsAreNotMerged() {
+        assertNotEquals(QueryCanonicalizer.canonicalize("lego technic"), QueryCanonicalizer.canonicalize("lego-technic"));
+    }
+}
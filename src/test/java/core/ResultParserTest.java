@@ -0,0 +1,54 @@
+package core;
+
+import core.entities.Item;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class ResultParserTest {
+
+    private static final String PAGE = "{\"findItemsAdvancedResponse\":[{\"ack\":[\"Success\"],\"version\":[\"1.13.0\"],"
+            + "\"searchResult\":[{\"@count\":\"3\",\"item\":[%s]}],"
+            + "\"paginationOutput\":[{\"pageNumber\":[\"1\"],\"entriesPerPage\":[\"100\"],\"totalPages\":[\"1\"],"
+            + "\"totalEntries\":[\"3\"]}],\"itemSearchURL\":[\"https://www.ebay.com/sch/i.html?_nkw=lego\"]}]}";
+
+    @Test
+    public void itemsAreRead() throws IOException {
+        ResultParser parser = parse(item("100000", "12.50") + "," + item("100001", "7.00"));
+        assertTrue(parser.isSuccess());
+        assertEquals(Integer.valueOf(3), parser.getTotalEntries());
+        assertEquals("https://www.ebay.com/sch/i.html?_nkw=lego", parser.getSearchUrl());
+        assertEquals(2, parser.getItems().size());
+        Item item = parser.getItems().get(1);
+        assertEquals("100001", item.getItemId());
+        assertEquals(0, parser.getSkippedItems());
+    }
+
+    @Test
+    public void incompleteItemIsSkipped() throws IOException {
+        String withoutPrice = "{\"itemId\":[\"100001\"],\"title\":[\"lego\"],\"viewItemURL\":[\"https://www.ebay.com/itm/100001\"],"
+                + "\"sellingStatus\":[{\"sellingState\":[\"Active\"]}]}";
+        ResultParser parser = parse(item("100000", "12.50") + "," + withoutPrice + "," + item("100002", "3.99"));
+        assertTrue(parser.isSuccess());
+        assertTrue(parser.hasItems());
+        assertEquals(2, parser.getItems().size());
+        assertEquals("100000", parser.getItems().get(0).getItemId());
+        assertEquals("100002", parser.getItems().get(1).getItemId());
+        assertEquals(1, parser.getSkippedItems());
+    }
+
+    private static ResultParser parse(String items) throws IOException {
+        ResultParser parser = new ResultParser(ItemsSeeker.CallType.ACTIVE);
+        parser.parse(new StringReader(String.format(PAGE, items)));
+        return parser;
+    }
+
+    private static String item(String itemId, String price) {
+        return "{\"itemId\":[\"" + itemId + "\"],\"title\":[\"lego\"],\"viewItemURL\":[\"https://www.ebay.com/itm/" + itemId + "\"],"
+                + "\"sellingStatus\":[{\"currentPrice\":[{\"@currencyId\":\"USD\",\"__value__\":\"" + price + "\"}],"
+                + "\"sellingState\":[\"Active\"]}]}";
+    }
+}
@@ -0,0 +1,156 @@
+package core;
+
+import core.entities.Result;
+import okhttp3.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class RetryTest {
+
+    private static final String URL = "http://localhost/services/search/FindingService/v1?OPERATION-NAME=findItemsAdvanced&keywords=lego";
+    private static final String THROTTLED = "{\"findItemsAdvancedResponse\":[{\"ack\":[\"Failure\"],\"errorMessage\":[{\"error\":[{"
+            + "\"errorId\":[\"10001\"],\"domain\":[\"Security\"],\"severity\":[\"Error\"],\"category\":[\"System\"],"
+            + "\"message\":[\"Service call has exceeded the number of times the operation is allowed to be called\"],"
+            + "\"subdomain\":[\"RateLimiter\"]}]}],\"version\":[\"1.13.0\"]}]}";
+    private static final String BAD_CATEGORY = "{\"findItemsAdvancedResponse\":[{\"ack\":[\"Failure\"],\"errorMessage\":[{\"error\":[{"
+            + "\"errorId\":[\"3\"],\"domain\":[\"Marketplace\"],\"severity\":[\"Error\"],\"category\":[\"Request\"],"
+            + "\"message\":[\"Invalid category ID.\"],\"subdomain\":[\"Search\"]}]}],\"version\":[\"1.13.0\"]}]}";
+    private static final String PAGE = "{\"findItemsAdvancedResponse\":[{\"ack\":[\"Success\"],\"version\":[\"1.13.0\"],"
+            + "\"searchResult\":[{\"@count\":\"1\",\"item\":[{\"itemId\":[\"100000\"],\"title\":[\"lego\"],"
+            + "\"viewItemURL\":[\"https://www.ebay.com/itm/100000\"],\"sellingStatus\":[{\"currentPrice\":"
+            + "[{\"@currencyId\":\"USD\",\"__value__\":\"12.50\"}],\"sellingState\":[\"Active\"]}]}]}],"
+            + "\"paginationOutput\":[{\"pageNumber\":[\"1\"],\"entriesPerPage\":[\"100\"],\"totalPages\":[\"1\"],"
+            + "\"totalEntries\":[\"1\"]}],\"itemSearchURL\":[\"https://www.ebay.com/sch/i.html?_nkw=lego\"]}]}";
+
+    private ItemsSeeker seeker;
+    private final PageRequest page = new PageRequest("lego", ItemsSeeker.CallType.ACTIVE, 1);
+
+    @Before
+    public void setUp() {
+        seeker = new ItemsSeeker(new ArrayList<>(), "test", ItemsSeeker.Condition.ALL, null);
+    }
+
+    @Test
+    public void successPageIsRead() {
+        Result result = seeker.readPage(page, response(200, PAGE));
+        assertNotNull(result);
+        assertEquals(1, result.getActiveItemsTotal());
+        assertEquals(1, result.getItemsCount());
+        assertEquals(12.5, result.getAvgPriceListed(), 0.001);
+    }
+
+    @Test
+    public void errorAckIsLoadedAgain() {
+        assertNull(seeker.readPage(page, response(500, THROTTLED)));
+        assertNull(seeker.readPage(page, response(200, THROTTLED)));
+    }
+
+    @Test
+    public void errorStatusIsLoadedAgain() {
+        assertNull(seeker.readPage(page, response(503, PAGE)));
+        assertNull(seeker.readPage(page, response(503, "Service Unavailable")));
+    }
+
+    @Test
+    public void throttlingCutsConcurrency() {
+        seeker.setMaxThreads(16);
+        assertNull(seeker.readPage(page, response(500, THROTTLED)));
+        assertNull(seeker.readPage(page, response(429, "Too Many Requests")));
+        assertTrue(seeker.getConcurrencyLimit() < 16);
+    }
+
+    @Test
+    public void warningAckIsSuccess() {
+        Result result = seeker.readPage(page, response(200, PAGE.replace("\"Success\"", "\"Warning\"")));
+        assertNotNull(result);
+        assertFalse(ItemsSeeker.isRejected(result));
+        assertTrue(result.getIsSuccess());
+        assertEquals(1, result.getItemsCount());
+    }
+
+    @Test
+    public void permanentErrorIsRejectedAtOnce() {
+        seeker.setMaxThreads(16);
+        for (Response response : new Response[]{response(500, BAD_CATEGORY), response(200, BAD_CATEGORY), response(401, "Unauthorized")}) {
+            Result result = seeker.readPage(page, response);
+            assertNotNull(result);
+            assertTrue(ItemsSeeker.isRejected(result));
+            assertFalse(result.getIsSuccess());
+        }
+        assertEquals(16, seeker.getConcurrencyLimit()); //Other queries aren't slowed down
+    }
+
+    @Test
+    public void transientErrorsAreKnown() {
+        assertTrue(ItemsSeeker.isTransientError(500, "10001"));
+        assertTrue(ItemsSeeker.isTransientError(200, "10001"));
+        assertTrue(ItemsSeeker.isTransientError(503, null));
+        assertTrue(ItemsSeeker.isTransientError(429, null));
+        assertFalse(ItemsSeeker.isTransientError(500, "3"));
+        assertFalse(ItemsSeeker.isTransientError(400, null));
+        assertFalse(ItemsSeeker.isTransientError(200, null));
+    }
+
+    @Test
+    public void errorAckCountsAsBreakerFailure() {
+        seeker.setCircuitBreaker(new CircuitBreaker(2, 1.0, 60000));
+        for (int i = 0; i < 2; i++) {
+            assertNull(seeker.readPage(page, response(500, THROTTLED)));
+            seeker.getRetryDelay(page);
+        }
+        assertTrue(seeker.getCircuitBreaker().getRemainingPause() > 0);
+    }
+
+    @Test
+    public void pageIsRetriedUntilAttemptsAreUsed() {
+        seeker.setRetryPolicy(new RetryPolicy(3, 0, 0));
+        PageRequest attempt = page;
+        assertEquals(0, seeker.getRetryDelay(attempt));
+        attempt = attempt.nextAttempt();
+        assertEquals(0, seeker.getRetryDelay(attempt));
+        attempt = attempt.nextAttempt();
+        assertEquals(-1, seeker.getRetryDelay(attempt));
+    }
+
+    @Test
+    public void delayIsWithinExponentialCeiling() {
+        RetryPolicy policy = new RetryPolicy(10, 100, 1000);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.getDelay(1) <= 100);
+            assertTrue(policy.getDelay(3) <= 400);
+            assertTrue(policy.getDelay(9) <= 1000);
+            assertTrue(policy.getDelay(Integer.MAX_VALUE) <= 1000);
+            assertTrue(policy.getDelay(Integer.MAX_VALUE) >= 0);
+        }
+    }
+
+    @Test
+    public void zeroBaseDelayRetriesAtOnce() {
+        RetryPolicy policy = new RetryPolicy(5, 0, 30000);
+        for (int attempt = 1; attempt < 70; attempt++) assertEquals(0, policy.getDelay(attempt));
+    }
+
+    @Test
+    public void breakerOpensOnFailureRatio() {
+        CircuitBreaker breaker = new CircuitBreaker(4, 0.5, 60000);
+        breaker.onSuccess();
+        breaker.onSuccess();
+        assertFalse(breaker.onFailure());
+        assertTrue(breaker.onFailure());
+        assertTrue(breaker.getRemainingPause() > 0);
+    }
+
+    private static Response response(int code, String body) {
+        return new Response.Builder()
+                .request(new Request.Builder().url(URL).build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("")
+                .body(ResponseBody.create(body, MediaType.parse("application/json")))
+                .build();
+    }
+}